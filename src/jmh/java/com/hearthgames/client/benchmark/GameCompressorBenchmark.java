@@ -0,0 +1,61 @@
+package com.hearthgames.client.benchmark;
+
+import com.hearthgames.client.log.GameCompressor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Compressing a whole game, line by line as the recorder does it and the original way of building the game text
+ * first and deflating it in one go.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameCompressorBenchmark {
+
+    private List<String> game;
+    private GameCompressor compressor;
+
+    @Setup
+    public void setUp() {
+        game = LogCorpus.game(42);
+        compressor = new GameCompressor();
+    }
+
+    @TearDown
+    public void tearDown() {
+        compressor.close();
+    }
+
+    @Benchmark
+    public byte[] gameCompressor() {
+        compressor.reset();
+        for (String line : game) {
+            compressor.write(line);
+        }
+        return compressor.finish();
+    }
+
+    @Benchmark
+    public byte[] stringBuilderAndDeflaterOutputStream() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (String line : game) {
+            text.append(line).append("\n");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new DeflaterOutputStream(bytes)) {
+            out.write(text.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,57 @@
+package com.hearthgames.client.benchmark;
+
+import com.hearthgames.client.log.GameLogger;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per line of deciding whether a line belongs to one of the loggers we record, over a realistic mix of lines.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameLoggerBenchmark {
+
+    private String[] lines;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        lines = LogCorpus.games(42, 5).toArray(new String[0]);
+    }
+
+    @Benchmark
+    public boolean isLineValid() {
+        return GameLogger.isLineValid(nextLine());
+    }
+
+    @Benchmark
+    public GameLogger classify() {
+        return GameLogger.classify(nextLine());
+    }
+
+    // The original check, searching the whole line for every logger name
+    @Benchmark
+    public boolean containsEachLogger() {
+        String line = nextLine();
+        if (line.isEmpty()) return false;
+        for (GameLogger gameLogger : GameLogger.values()) {
+            if (line.contains(gameLogger.name())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String nextLine() {
+        String line = lines[next];
+        if (++next == lines.length) {
+            next = 0;
+        }
+        return line;
+    }
+}
@@ -0,0 +1,77 @@
+package com.hearthgames.client.benchmark;
+
+import com.hearthgames.client.archive.GameArchive;
+import com.hearthgames.client.background.BackgroundScheduler;
+import com.hearthgames.client.config.ApplicationProperties;
+import com.hearthgames.client.live.LiveStreamer;
+import com.hearthgames.client.log.*;
+import com.hearthgames.client.metrics.MetricsRegistry;
+import com.hearthgames.client.spool.GameSpool;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Everything the tailer thread does for a whole game: classifying, compressing and tracking each line, then hashing
+ * the game and checking it against the recorded games.  The game is recorded once during setup so the measured runs
+ * find it already recorded and never reach the network.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameRecorderBenchmark {
+
+    private File dataDir;
+    private String[] game;
+    private GameSpool spool;
+    private GameUploadPipeline pipeline;
+    private RecordedGamesIndex recordedGames;
+    private GameRecorder recorder;
+
+    @Setup
+    public void setUp() throws IOException {
+        dataDir = Files.createTempDirectory("hearthgames-benchmark").toFile();
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.setUploadUrl("http://localhost:1/clientUpload");
+        properties.setUploadBatchUrl("http://localhost:1/clientUploadBatch");
+        properties.setUploadMaxAttempts(1);
+
+        RestTemplate restTemplate = new RestTemplate();
+        MetricsRegistry metrics = new MetricsRegistry();
+        spool = new GameSpool(new File(dataDir, "spool"));
+        pipeline = new GameUploadPipeline(new GameUploader(new GameUploadTransport(restTemplate), properties, metrics), spool,
+                new GameArchive(new File(dataDir, "archive"), 0, 0, metrics), properties, metrics);
+        recordedGames = new RecordedGamesIndex(new File(dataDir, "recorded-games.idx"), properties.getRecordedGamesCapacity());
+        recorder = new GameRecorder(pipeline, recordedGames, new LiveStreamer(restTemplate, properties),
+                new BackgroundScheduler(properties, metrics), metrics, properties);
+
+        game = LogCorpus.game(42).toArray(new String[0]);
+        handleGame();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        recorder.shutdown();
+        pipeline.shutdown();
+        spool.close();
+        recordedGames.flush();
+        FileUtils.deleteDirectory(dataDir);
+    }
+
+    @Benchmark
+    public int handleGame() {
+        for (String line : game) {
+            recorder.handle(line);
+        }
+        return recordedGames.size();
+    }
+}
@@ -0,0 +1,200 @@
+package com.hearthgames.client.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates Hearthstone logs for the benchmarks.  The line mix follows a ranked game with the Power, Bob, LoadingScreen
+ * and Asset loggers enabled: menu screens and asset unloading around the game, the entity dump after CREATE_GAME, then
+ * turns of draws, options, plays and attacks logged by both GameState and PowerTaskList, and the Unity noise lines
+ * the recorder has to skip.  The same seed always gives the same log.
+ */
+public final class LogCorpus {
+
+    private static final String POWER = "[Power] GameState.DebugPrintPower() - ";
+    private static final String TASK_LIST = "[Power] PowerTaskList.DebugPrintPower() - ";
+    private static final String OPTIONS = "[Power] GameState.DebugPrintOptions() - ";
+    private static final String NOISE = "(Filename: C:/buildslave/unity/build/artifacts/generated/common/runtime/UnityEngineDebugBindings.gen.cpp Line: 64)";
+
+    private static final String[] CARDS = {
+            "EX1_066", "CS2_189", "EX1_008", "CS2_172", "EX1_593", "CS2_203", "EX1_012", "FP1_001", "GVG_013", "CS2_029",
+            "EX1_277", "CS2_024", "EX1_096", "NEW1_021", "BRM_002", "AT_007", "CS2_188", "EX1_029", "GVG_006", "FP1_004"
+    };
+    private static final String[] NAMES = {
+            "Fiery War Axe", "Elven Archer", "Argent Squire", "Bloodfen Raptor", "Nightblade", "Ironbeak Owl",
+            "Azure Drake", "Zombie Chow", "Mistress of Mixtures", "Fireball", "Arcane Missiles", "Frostbolt",
+            "Loot Hoarder", "Doomsayer", "Flamewaker", "Spellslinger", "Abusive Sergeant", "Leper Gnome",
+            "Mechwarper", "Mad Scientist"
+    };
+    private static final String[] ZONES = {"DECK", "HAND", "PLAY", "GRAVEYARD"};
+
+    private LogCorpus() {
+    }
+
+    /**
+     * @return a single game with everything logged around it, between 8 and 16 turns long
+     */
+    public static List<String> game(long seed) {
+        Random random = new Random(seed);
+        List<String> lines = new ArrayList<>();
+        new Writer(random, lines).game(8 + random.nextInt(9));
+        return lines;
+    }
+
+    /**
+     * @return several games back to back, as a long session would leave them in the log
+     */
+    public static List<String> games(long seed, int count) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            lines.addAll(game(seed + i));
+        }
+        return lines;
+    }
+
+    private static class Writer {
+        private final Random random;
+        private final List<String> lines;
+        private int nextEntity = 4;
+
+        Writer(Random random, List<String> lines) {
+            this.random = random;
+            this.lines = lines;
+        }
+
+        void game(int turns) {
+            menus();
+            lines.add("[LoadingScreen] LoadingScreen.OnSceneLoaded() - prevMode=TOURNAMENT currMode=GAMEPLAY");
+            lines.add("[LoadingScreen] LoadingScreen.OnScenePreUnload() - prevMode=TOURNAMENT nextMode=GAMEPLAY loadingScreenState=NotFinishedShowing");
+            create();
+            for (int turn = 1; turn <= turns; turn++) {
+                turn(turn);
+            }
+            end();
+            menus();
+        }
+
+        private void menus() {
+            lines.add("[Bob] ---RegisterScreenTourneys---");
+            lines.add("[LoadingScreen] LoadingScreen.OnSceneLoaded() - prevMode=HUB currMode=TOURNAMENT");
+            for (int i = 0; i < 20 + random.nextInt(30); i++) {
+                lines.add("[Asset] CachedAsset.UnloadAssetObject() - unloading name=" + asset() + " family=CardPrefab persistent=False");
+                noise();
+            }
+            lines.add("[Asset] CachedAsset.UnloadAssetObject() - unloading name=Medal_Ranked_" + (1 + random.nextInt(25)) + " family=Texture persistent=False");
+            lines.add("[Bob] ---RegisterFriendChallenge---");
+        }
+
+        private void create() {
+            lines.add(POWER + "CREATE_GAME");
+            lines.add(POWER + "    GameEntity EntityID=1");
+            tags("        ", 12);
+            for (int player = 1; player <= 2; player++) {
+                lines.add(POWER + "    Player EntityID=" + (player + 1) + " PlayerID=" + player + " GameAccountId=[hi=144115193835963207 lo=" + (20000000 + random.nextInt(9999999)) + "]");
+                tags("        ", 14);
+            }
+            for (int i = 0; i < 68; i++) {
+                lines.add(POWER + "    FULL_ENTITY - Creating ID=" + nextEntity++ + " CardID=" + (i < 4 ? CARDS[random.nextInt(CARDS.length)] : ""));
+                tags("        ", 4 + random.nextInt(4));
+            }
+        }
+
+        private void turn(int turn) {
+            int player = 1 + turn % 2;
+            tagChange("GameEntity", "STEP", "MAIN_READY");
+            tagChange("GameEntity", "TURN", String.valueOf(turn));
+            block("TRIGGER", player, () -> {
+                show();
+                tagChange(entity(player), "NUM_CARDS_DRAWN_THIS_TURN", "1");
+            });
+            int actions = 1 + random.nextInt(4);
+            for (int action = 0; action < actions; action++) {
+                options(3 + random.nextInt(10));
+                lines.add("[Power] GameState.SendOption() - selectedOption=" + (1 + random.nextInt(3)) + " selectedSubOption=-1 selectedTarget=0 selectedPosition=0");
+                if (random.nextInt(3) == 0) {
+                    block("ATTACK", player, () -> {
+                        tagChange(entity(player), "ATTACKING", "1");
+                        tagChange(entity(3 - player), "DEFENDING", "1");
+                        tagChange(entity(3 - player), "DAMAGE", String.valueOf(random.nextInt(8)));
+                        tagChange(entity(player), "NUM_ATTACKS_THIS_TURN", "1");
+                    });
+                } else {
+                    block("PLAY", player, () -> {
+                        tagChange("Player" + player, "RESOURCES_USED", String.valueOf(random.nextInt(10)));
+                        tagChange(entity(player), "ZONE", "PLAY");
+                        tagChange(entity(player), "ZONE_POSITION", String.valueOf(1 + random.nextInt(7)));
+                        if (random.nextBoolean()) {
+                            block("POWER", player, () -> tagChange(entity(3 - player), "DAMAGE", String.valueOf(random.nextInt(5))));
+                        }
+                    });
+                }
+                noise();
+            }
+            options(1);
+            lines.add("[Power] GameState.SendOption() - selectedOption=0 selectedSubOption=-1 selectedTarget=0 selectedPosition=0");
+            tagChange("GameEntity", "STEP", "MAIN_END");
+        }
+
+        private void end() {
+            tagChange("Player1", "PLAYSTATE", "WON");
+            tagChange("Player2", "PLAYSTATE", "LOST");
+            lines.add(POWER + "TAG_CHANGE Entity=GameEntity tag=STATE value=COMPLETE");
+            lines.add(TASK_LIST + "TAG_CHANGE Entity=GameEntity tag=STATE value=COMPLETE");
+            lines.add("[LoadingScreen] LoadingScreen.OnSceneUnloaded() - prevMode=GAMEPLAY currMode=TOURNAMENT");
+        }
+
+        // Both GameState and PowerTaskList log every change, the task list a little later.
+        private void tagChange(String entity, String tag, String value) {
+            String change = "TAG_CHANGE Entity=" + entity + " tag=" + tag + " value=" + value;
+            lines.add(POWER + change);
+            lines.add(TASK_LIST + change);
+        }
+
+        private void block(String type, int player, Runnable body) {
+            String start = "ACTION_START Entity=" + entity(player) + " BlockType=" + type + " Index=-1 Target=0";
+            lines.add(POWER + start);
+            lines.add(TASK_LIST + start);
+            body.run();
+            lines.add(POWER + "ACTION_END");
+            lines.add(TASK_LIST + "ACTION_END");
+        }
+
+        private void show() {
+            String show = "    SHOW_ENTITY - Updating Entity=" + (4 + random.nextInt(64)) + " CardID=" + CARDS[random.nextInt(CARDS.length)];
+            lines.add(POWER + show);
+            lines.add(TASK_LIST + show);
+            tags("        ", 6);
+        }
+
+        private void options(int count) {
+            lines.add(OPTIONS + "id=" + random.nextInt(100));
+            for (int i = 0; i < count; i++) {
+                lines.add(OPTIONS + "  option " + i + " type=POWER mainEntity=" + entity(1 + random.nextInt(2)));
+            }
+        }
+
+        private void tags(String indent, int count) {
+            for (int i = 0; i < count; i++) {
+                lines.add(POWER + indent + "tag=" + (random.nextInt(500)) + " value=" + random.nextInt(30));
+            }
+        }
+
+        private String entity(int player) {
+            int card = random.nextInt(CARDS.length);
+            return "[name=" + NAMES[card] + " id=" + (4 + random.nextInt(64)) + " zone=" + ZONES[random.nextInt(ZONES.length)]
+                    + " zonePos=" + random.nextInt(8) + " cardId=" + CARDS[card] + " player=" + player + "]";
+        }
+
+        private String asset() {
+            return CARDS[random.nextInt(CARDS.length)] + (random.nextBoolean() ? "_premium" : "");
+        }
+
+        private void noise() {
+            if (random.nextInt(4) == 0) {
+                lines.add("");
+                lines.add(NOISE);
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.hearthgames.client.benchmark;
+
+import com.hearthgames.client.config.ApplicationProperties;
+import com.hearthgames.client.importer.LogImporter;
+import com.hearthgames.client.log.RecordedGamesIndex;
+import com.hearthgames.client.spool.GameSpool;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports a log of 200 games (about 30 MB) into an empty spool, with as many threads as the parameter says.  The
+ * import should get faster with every thread up to the number of cores, compressing the games is most of the work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogImportBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private File logDir;
+    private File log;
+    private File dataDir;
+    private GameSpool spool;
+    private RecordedGamesIndex recordedGames;
+    private LogImporter importer;
+
+    @Setup(Level.Trial)
+    public void writeLog() throws IOException {
+        logDir = Files.createTempDirectory("hearthgames-import-log").toFile();
+        log = new File(logDir, "output_log.txt");
+        try (Writer writer = new BufferedWriter(Files.newBufferedWriter(log.toPath(), StandardCharsets.UTF_8))) {
+            for (String line : LogCorpus.games(1, 200)) {
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+    }
+
+    // every import starts from an empty spool, otherwise all but the first would find the games already recorded
+    @Setup(Level.Invocation)
+    public void setUp() throws IOException {
+        dataDir = Files.createTempDirectory("hearthgames-import").toFile();
+        spool = new GameSpool(new File(dataDir, "spool"));
+        recordedGames = new RecordedGamesIndex(new File(dataDir, "recorded-games.idx"), 4096);
+        importer = new LogImporter(spool, recordedGames, new ApplicationProperties(), threads, 4 * 1024 * 1024);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws IOException {
+        importer.close();
+        spool.close();
+        FileUtils.deleteDirectory(dataDir);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteLog() throws IOException {
+        FileUtils.deleteDirectory(logDir);
+    }
+
+    @Benchmark
+    public int importLog() throws IOException {
+        return importer.importFile(log).getImported();
+    }
+}
@@ -0,0 +1,49 @@
+package com.hearthgames.client.benchmark;
+
+import com.hearthgames.client.power.PowerEvent;
+import com.hearthgames.client.power.PowerLogParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per line of turning Power lines into events, against the two contains() checks the recorder used to find the
+ * start and end of a game.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PowerLogParserBenchmark {
+
+    private String[] lines;
+    private PowerLogParser parser;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        lines = LogCorpus.games(42, 5).toArray(new String[0]);
+        parser = new PowerLogParser();
+    }
+
+    @Benchmark
+    public PowerEvent parse() {
+        return parser.parse(nextLine());
+    }
+
+    @Benchmark
+    public boolean containsChecks() {
+        String line = nextLine();
+        return line.contains("CREATE_GAME") || line.contains("TAG_CHANGE Entity=GameEntity tag=STATE value=COMPLETE");
+    }
+
+    private String nextLine() {
+        String line = lines[next];
+        if (++next == lines.length) {
+            next = 0;
+        }
+        return line;
+    }
+}
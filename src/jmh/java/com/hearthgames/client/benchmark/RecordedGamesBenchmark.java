@@ -0,0 +1,83 @@
+package com.hearthgames.client.benchmark;
+
+import com.hearthgames.client.log.ContentHash;
+import com.hearthgames.client.log.RecordedGamesIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checking whether a game has already been recorded as the number of recorded games grows, with the index the
+ * recorder uses and the original list of every recorded game compared byte by byte.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordedGamesBenchmark {
+
+    private static final int GAME_LENGTH = 20000;
+
+    @Param({"10", "100", "1000", "4096"})
+    private int recorded;
+
+    private File file;
+    private RecordedGamesIndex index;
+    private List<byte[]> games;
+    private byte[] newGame;
+    private long nextHash;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("recorded-games", ".idx");
+        file.delete();
+        index = new RecordedGamesIndex(file, recorded);
+        games = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < recorded; i++) {
+            byte[] game = new byte[GAME_LENGTH];
+            random.nextBytes(game);
+            games.add(game);
+            index.add(ContentHash.of(game));
+        }
+        // Same length and prefix as a recorded game, like two games that differ near the end
+        newGame = Arrays.copyOf(games.get(recorded - 1), GAME_LENGTH);
+        newGame[GAME_LENGTH - 1]++;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index.flush();
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Benchmark
+    public boolean indexContains() {
+        return index.contains(ContentHash.of(newGame));
+    }
+
+    // Adding to a full index also evicts the oldest game
+    @Benchmark
+    public boolean indexAdd() {
+        return index.add(++nextHash);
+    }
+
+    @Benchmark
+    public boolean listScan() {
+        for (byte[] game : games) {
+            if (Arrays.equals(newGame, game)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
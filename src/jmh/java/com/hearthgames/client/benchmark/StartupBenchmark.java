@@ -0,0 +1,80 @@
+package com.hearthgames.client.benchmark;
+
+import com.hearthgames.client.HearthGamesClientApplication;
+import com.hearthgames.client.metrics.Counter;
+import com.hearthgames.client.metrics.MetricsRegistry;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from starting the client to it reading the first line written to the log.  Every fork is a new JVM so each
+ * measurement is a cold start, headless against a temp home with an empty log.  The time since the JVM was launched
+ * is printed as well, since that's what a player waits for.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+public class StartupBenchmark {
+
+    private static final byte[] LINE = "[Power] GameState.DebugPrintPower() - CREATE_GAME\n".getBytes(StandardCharsets.UTF_8);
+
+    private File home;
+    private File logFile;
+    private ConfigurableApplicationContext context;
+    private long firstLineUptime;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        home = Files.createTempDirectory("hearthgames-startup").toFile();
+        File wine = new File(home, ".wine/drive_c");
+        logFile = new File(wine, "Program Files (x86)/Hearthstone/Hearthstone_Data/output_log.txt");
+        FileUtils.forceMkdir(logFile.getParentFile());
+        FileUtils.forceMkdir(new File(wine, "users/" + System.getProperty("user.name") + "/Local Settings/Application Data/Blizzard/Hearthstone"));
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        if (context != null) {
+            context.close();
+        }
+        FileUtils.deleteDirectory(home);
+        System.out.println();
+        System.out.println("first line read " + firstLineUptime + " ms after the JVM was launched");
+    }
+
+    @Benchmark
+    public long firstLineRead() throws Exception {
+        context = new SpringApplicationBuilder(HearthGamesClientApplication.class)
+                .headless(true)
+                .web(false)
+                .run("--application.headless=true",
+                        "--application.os-name=Linux",
+                        "--application.user-home=" + home,
+                        "--application.data-dir=" + new File(home, ".hearthgames"));
+        Counter linesRead = (Counter) context.getBean(MetricsRegistry.class).getMetric("hearthgames_log_lines_read_total");
+        // the tailer starts at the end of the log, keep writing until it has picked a line up
+        try (OutputStream out = new FileOutputStream(logFile, true)) {
+            while (linesRead.get() == 0) {
+                out.write(LINE);
+                out.flush();
+                Thread.sleep(1);
+            }
+        }
+        firstLineUptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        return linesRead.get();
+    }
+}
@@ -1,15 +1,28 @@
 package com.hearthgames.client;
 
-import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.PropertyPlaceholderAutoConfiguration;
 import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 
-@SpringBootApplication
+import java.awt.*;
+
+/**
+ * Only imports the auto-configuration the client uses rather than evaluating all of Spring Boot's on every start.
+ */
+@Configuration
+@ComponentScan
+@EnableConfigurationProperties
+@Import(PropertyPlaceholderAutoConfiguration.class)
 public class HearthGamesClientApplication {
 
     public static void main(String[] args) throws Exception {
+        // asked before anything sets java.awt.headless, so it reflects whether there's a display
         new SpringApplicationBuilder(HearthGamesClientApplication.class)
-                .headless(false)
+                .headless(GraphicsEnvironment.isHeadless())
                 .web(false)
                 .run(args);
     }
-}
\ No newline at end of file
+}
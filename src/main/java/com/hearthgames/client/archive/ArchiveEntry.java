@@ -0,0 +1,81 @@
+package com.hearthgames.client.archive;
+
+/**
+ * A game in the {@link GameArchive}, with where to find its data and what it can be looked up by.  Only a snapshot:
+ * compaction moves games, so the archive looks a game up again by its hash before reading it.
+ */
+public class ArchiveEntry {
+
+    private final int segment;
+    private final long offset;
+    private final int length;
+    private final int crc;
+    // same layout as the spool: game type in the low 16 bits, rank in the next 8 and compression dictionary in the high 8
+    private final int gameInfo;
+    private final long startTime;
+    private final long endTime;
+    private final long hash;
+
+    ArchiveEntry(int segment, long offset, int length, int crc, int gameInfo, long startTime, long endTime, long hash) {
+        this.segment = segment;
+        this.offset = offset;
+        this.length = length;
+        this.crc = crc;
+        this.gameInfo = gameInfo;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.hash = hash;
+    }
+
+    int getSegment() {
+        return segment;
+    }
+
+    long getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    int getCrc() {
+        return crc;
+    }
+
+    int getGameInfo() {
+        return gameInfo;
+    }
+
+    public int getGameType() {
+        return gameType(gameInfo);
+    }
+
+    public int getRank() {
+        return (gameInfo >>> 16) & 0xFF;
+    }
+
+    public int getDictionaryId() {
+        return gameInfo >>> 24;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    static int gameType(int gameInfo) {
+        return gameInfo & 0xFFFF;
+    }
+
+    static int gameInfo(int gameType, int rank, int dictionaryId) {
+        return (gameType & 0xFFFF) | ((rank & 0xFF) << 16) | (dictionaryId << 24);
+    }
+}
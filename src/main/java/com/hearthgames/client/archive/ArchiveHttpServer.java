@@ -0,0 +1,254 @@
+package com.hearthgames.client.archive;
+
+import com.hearthgames.client.config.ApplicationProperties;
+import com.hearthgames.client.log.BinaryGameFormat;
+import com.hearthgames.client.log.GameType;
+import com.hearthgames.client.log.GameUploader;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves the {@link GameArchive} at http://localhost:&lt;archive-port&gt;.  Off unless application.archive-port is set,
+ * and only ever bound to the loopback address.
+ *
+ * GET /games?from=&amp;to=&amp;type=&amp;limit= lists the games that started in a time range (epoch millis, to
+ * excluded) as JSON, oldest first.  GET /games/&lt;hash&gt; returns a game and GET /export?from=&amp;to=&amp;type=
+ * every game in a range, in the {@link BinaryGameFormat} the client uploads with.  Exports are streamed from the
+ * segment files, so their size doesn't matter.  POST /games/&lt;hash&gt;/upload sends a game to the server again.
+ *
+ * Being bound to the loopback address doesn't keep web pages out: a page can post to localhost, and with DNS rebinding
+ * read from it.  So requests must name localhost or 127.0.0.1 and the port in their Host header, and requests from a
+ * page on any other origin are refused.
+ */
+@Component
+public class ArchiveHttpServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveHttpServer.class);
+
+    private static final int DEFAULT_LIMIT = 1000;
+
+    private final GameArchive archive;
+    private final GameUploader uploader;
+    private final int port;
+    private HttpServer server;
+
+    @Autowired
+    public ArchiveHttpServer(@Lazy GameArchive archive, @Lazy GameUploader uploader, ApplicationProperties properties) {
+        this.archive = archive;
+        this.uploader = uploader;
+        this.port = properties.getArchivePort();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (port <= 0) return;
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            server.createContext("/games", this::games);
+            server.createContext("/export", this::export);
+            server.start();
+            logger.info("Archived games available at http://localhost:" + port + "/games");
+        } catch (IOException e) {
+            logger.warn("Could not start the archive endpoint on port " + port + " : " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private void games(HttpExchange exchange) throws IOException {
+        try {
+            if (!isLocal(exchange)) {
+                send(exchange, 403, "Forbidden");
+                return;
+            }
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            String method = exchange.getRequestMethod();
+            if (path.length == 2) {
+                if (!method.equals("GET")) {
+                    send(exchange, 405, "Use GET");
+                    return;
+                }
+                Map<String, String> query = query(exchange);
+                send(exchange, 200, "application/json", json(archive.find(from(query), to(query), type(query), limit(query))));
+            } else if (path.length == 3) {
+                if (!method.equals("GET")) {
+                    send(exchange, 405, "Use GET");
+                    return;
+                }
+                ArchiveEntry game = archive.get(hash(path[2]));
+                if (game == null) {
+                    send(exchange, 404, "No such game");
+                    return;
+                }
+                exchange.getResponseHeaders().set("Content-Type", BinaryGameFormat.CONTENT_TYPE);
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream out = new BufferedOutputStream(exchange.getResponseBody())) {
+                    archive.export(Collections.singletonList(game), out);
+                }
+            } else if (path.length == 4 && path[3].equals("upload")) {
+                if (!method.equals("POST")) {
+                    send(exchange, 405, "Use POST");
+                    return;
+                }
+                GameUploader.UploadResult result = archive.withGame(hash(path[2]), uploader::upload);
+                if (result == null) {
+                    send(exchange, 404, "No such game");
+                } else {
+                    send(exchange, 200, result.name());
+                }
+            } else {
+                send(exchange, 404, "Not found");
+            }
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void export(HttpExchange exchange) throws IOException {
+        try {
+            if (!isLocal(exchange)) {
+                send(exchange, 403, "Forbidden");
+                return;
+            }
+            if (!exchange.getRequestMethod().equals("GET")) {
+                send(exchange, 405, "Use GET");
+                return;
+            }
+            Map<String, String> query = query(exchange);
+            List<ArchiveEntry> games = archive.find(from(query), to(query), type(query), Integer.MAX_VALUE);
+            exchange.getResponseHeaders().set("Content-Type", BinaryGameFormat.BATCH_CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = new BufferedOutputStream(exchange.getResponseBody(), 65536)) {
+                archive.export(games, out);
+            }
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // a Host naming this server, and no Origin or this server's own
+    private boolean isLocal(HttpExchange exchange) {
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        if (host == null || !isLocalHost(host)) return false;
+        String origin = exchange.getRequestHeaders().getFirst("Origin");
+        return origin == null || origin.startsWith("http://") && isLocalHost(origin.substring("http://".length()));
+    }
+
+    private boolean isLocalHost(String host) {
+        return host.equalsIgnoreCase("localhost:" + port) || host.equals("127.0.0.1:" + port);
+    }
+
+    static String json(List<ArchiveEntry> games) {
+        StringBuilder json = new StringBuilder(64 + games.size() * 160).append('[');
+        for (ArchiveEntry game : games) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"hash\":\"").append(String.format("%016x", game.getHash()))
+                    .append("\",\"startTime\":").append(game.getStartTime())
+                    .append(",\"endTime\":").append(game.getEndTime())
+                    .append(",\"gameType\":").append(game.getGameType())
+                    .append(",\"gameTypeName\":\"").append(GameType.fromId(game.getGameType()).name())
+                    .append("\",\"rank\":").append(game.getRank())
+                    .append(",\"dictionaryId\":").append(game.getDictionaryId())
+                    .append(",\"length\":").append(game.getLength()).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static long from(Map<String, String> query) {
+        return number(query, "from", 0);
+    }
+
+    private static long to(Map<String, String> query) {
+        return number(query, "to", Long.MAX_VALUE);
+    }
+
+    private static int limit(Map<String, String> query) {
+        return (int) Math.min(number(query, "limit", DEFAULT_LIMIT), Integer.MAX_VALUE);
+    }
+
+    // a GameType name or id, -1 for any
+    private static int type(Map<String, String> query) {
+        String type = query.get("type");
+        if (type == null || type.isEmpty()) return -1;
+        for (GameType gameType : GameType.values()) {
+            if (gameType.name().equalsIgnoreCase(type)) {
+                return gameType.getId();
+            }
+        }
+        return (int) number(query, "type", -1);
+    }
+
+    private static long number(Map<String, String> query, String name, long defaultValue) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) return defaultValue;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + " : " + value);
+        }
+    }
+
+    private static long hash(String hash) {
+        try {
+            return Long.parseUnsignedLong(hash, 16);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid game hash : " + hash);
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) throws IOException {
+        Map<String, String> query = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) return query;
+        for (String parameter : raw.split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0) {
+                query.put(URLDecoder.decode(parameter.substring(0, equals), "UTF-8"), URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+            }
+        }
+        return query;
+    }
+
+    private static void send(HttpExchange exchange, int status, String text) throws IOException {
+        send(exchange, status, "text/plain; charset=utf-8", text);
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,736 @@
+package com.hearthgames.client.archive;
+
+import com.hearthgames.client.background.BackgroundScheduler;
+import com.hearthgames.client.config.ApplicationProperties;
+import com.hearthgames.client.log.BinaryGameFormat;
+import com.hearthgames.client.log.GamePayload;
+import com.hearthgames.client.log.GameUploader;
+import com.hearthgames.client.metrics.Counter;
+import com.hearthgames.client.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps a copy of the games the server recorded, so past games can be looked up, exported or sent again without it.
+ *
+ * Games are appended to segment files in the archive directory, the same way as in the spool, and described by fixed
+ * size entries in a memory mapped index.  The index is searched through arrays of entry slots sorted by start time,
+ * by content hash and by start time per game type, so a query is a binary search and the heap only holds 4 bytes a
+ * game for each of them.  A game's data is only read when it's streamed out.
+ *
+ * Once the games pass archive-max-bytes, or get older than archive-max-age-days, the oldest by start time are dropped.
+ * A segment is deleted once it has no games left.  One where they're less than half of it is compacted, its games
+ * copied to the end of the archive, by {@link #compact()} which the client runs between games.  Neither happens while
+ * games are being streamed out.  The index is compacted in place once most of its entries are dropped.
+ *
+ * Nothing is synced, the archive is only a copy.  When it's opened entries pointing past the end of their segment are
+ * dropped, records written after the last entry are indexed again, and the duplicates left by a compaction that was
+ * cut short are ignored.
+ *
+ * Segment record: magic, length, crc, game type/rank/dictionary (4 bytes each), start time, end time, hash (8 bytes each), data.
+ * Index: magic, version, count, active segment (4 bytes each), end of the last record in the active segment (8), then
+ * entries of segment, offset of the data, length, crc, game type/rank/dictionary, start time, end time, hash, state.
+ */
+@Component
+@Lazy
+public class GameArchive {
+
+    private static final Logger logger = LoggerFactory.getLogger(GameArchive.class);
+
+    private static final int RECORD_MAGIC = 0x48474131; // HGA1
+    private static final int RECORD_HEADER_SIZE = 40;
+    private static final int INDEX_MAGIC = 0x48474149; // HGAI
+    private static final int INDEX_VERSION = 1;
+    private static final int COUNT_OFFSET = 8;
+    private static final int ACTIVE_SEGMENT_OFFSET = 12;
+    private static final int ACTIVE_END_OFFSET = 16;
+    private static final int INDEX_HEADER_SIZE = 24;
+    private static final int ENTRY_SIZE = 52;
+    private static final int OFFSET_FIELD = 4;
+    private static final int LENGTH_FIELD = 12;
+    private static final int CRC_FIELD = 16;
+    private static final int GAME_INFO_FIELD = 20;
+    private static final int START_TIME_FIELD = 24;
+    private static final int END_TIME_FIELD = 32;
+    private static final int HASH_FIELD = 40;
+    private static final int STATE_FIELD = 48;
+    private static final int LIVE = 0;
+    private static final int DROPPED = 1;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final long SEGMENT_SIZE = 8 * 1024 * 1024;
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final File directory;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final Counter gamesDropped;
+    private final Map<Integer, FileChannel> segments = new HashMap<>();
+    // bytes in each segment, and bytes of the games that haven't been dropped
+    private final Map<Integer, Long> segmentBytes = new TreeMap<>();
+    private final Map<Integer, Long> liveSegmentBytes = new HashMap<>();
+    private final SlotIndex byStartTime = new SlotIndex(this::startTime);
+    private final SlotIndex byHash = new SlotIndex(this::hash);
+    private final Map<Integer, SlotIndex> byGameType = new HashMap<>();
+    private final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    private final CRC32 crc = new CRC32();
+    // games being streamed out, segments are left alone while there are any
+    private final AtomicInteger readers = new AtomicInteger();
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int count;
+    private long liveBytes;
+    private int activeSegment;
+
+    @Autowired
+    public GameArchive(ApplicationProperties properties, MetricsRegistry metrics, BackgroundScheduler scheduler) throws IOException {
+        this(new File(properties.getDataDir(), "archive"), properties.getArchiveMaxBytes(),
+                TimeUnit.DAYS.toMillis(properties.getArchiveMaxAgeDays()), metrics);
+        if (!isEnabled()) return;
+        scheduler.submit("archive-compaction", 1, () -> {
+            try {
+                return compact();
+            } catch (IOException e) {
+                logger.warn("Failed to compact the archive : " + e.getMessage());
+                return false;
+            }
+        });
+    }
+
+    /**
+     * @param maxBytes     0 turns the archive off
+     * @param maxAgeMillis 0 keeps games however old they are
+     */
+    public GameArchive(File directory, long maxBytes, long maxAgeMillis, MetricsRegistry metrics) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        this.gamesDropped = metrics.counter("archive_games_dropped_total", "Games dropped from the archive by its retention");
+        metrics.gauge("archive_games", "Games kept in the local archive", this::size);
+        metrics.gauge("archive_bytes", "Bytes of the games kept in the local archive", this::getBytes);
+        if (!isEnabled()) return;
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create archive directory : " + directory);
+        }
+        open();
+        retain();
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Copies the game into the archive, unless it's already there or older than the archive keeps games.
+     *
+     * @return false if the game wasn't added
+     */
+    public synchronized boolean add(GamePayload game) throws IOException {
+        if (!isEnabled() || byHash.find(game.getHash()) >= 0 || expired(game.getStartTime())) return false;
+        int length = game.getLength();
+        FileChannel segment = segmentFor(RECORD_HEADER_SIZE + length);
+        long position = segment.size();
+        crc.reset();
+        RecordOutput out = new RecordOutput(segment, position + RECORD_HEADER_SIZE);
+        try {
+            game.writeTo(out);
+            if (out.position - position - RECORD_HEADER_SIZE != length) {
+                throw new IOException("Game data doesn't match its length of " + length + " bytes");
+            }
+        } catch (IOException | RuntimeException e) {
+            segment.truncate(position);
+            throw e;
+        }
+        ArchiveEntry entry = new ArchiveEntry(activeSegment, position + RECORD_HEADER_SIZE, length, (int) crc.getValue(),
+                ArchiveEntry.gameInfo(game.getGameType(), game.getRank(), game.getDictionaryId()), game.getStartTime(),
+                game.getEndTime(), game.getHash());
+        header.clear();
+        header.putInt(RECORD_MAGIC).putInt(length).putInt(entry.getCrc()).putInt(entry.getGameInfo())
+                .putLong(entry.getStartTime()).putLong(entry.getEndTime()).putLong(entry.getHash());
+        header.flip();
+        writeFully(segment, header, position);
+        append(entry);
+        retain();
+        return true;
+    }
+
+    /**
+     * @param gameType only games of this {@link com.hearthgames.client.log.GameType} id, or -1 for any type
+     * @return up to limit games that started from from up to but not including to, oldest first
+     */
+    public synchronized List<ArchiveEntry> find(long from, long to, int gameType, int limit) {
+        List<ArchiveEntry> found = new ArrayList<>();
+        SlotIndex slots = gameType < 0 ? byStartTime : byGameType.get(gameType);
+        if (slots == null) return found;
+        for (int i = slots.lowerBound(from); i < slots.size() && found.size() < limit; i++) {
+            int slot = slots.get(i);
+            if (startTime(slot) >= to) break;
+            found.add(entry(slot));
+        }
+        return found;
+    }
+
+    /**
+     * @return the game with the content hash, null if it isn't in the archive
+     */
+    public synchronized ArchiveEntry get(long hash) {
+        int slot = byHash.find(hash);
+        return slot < 0 ? null : entry(slot);
+    }
+
+    public synchronized int size() {
+        return byHash.size();
+    }
+
+    /**
+     * @return the size of the games kept, headers included
+     */
+    public synchronized long getBytes() {
+        return liveBytes;
+    }
+
+    /**
+     * Writes the games to the stream as a {@link BinaryGameFormat} batch, read straight from the segment files.  Games
+     * dropped since they were found are skipped.
+     *
+     * @return the number of games written
+     */
+    public int export(List<ArchiveEntry> games, OutputStream out) throws IOException {
+        readers.incrementAndGet();
+        try {
+            int written = 0;
+            for (ArchiveEntry entry : games) {
+                ArchivedGame game = current(entry.getHash());
+                if (game == null) continue;
+                ByteBuffer gameHeader = ByteBuffer.allocate(BinaryGameFormat.size(game) - game.getLength());
+                BinaryGameFormat.writeHeader(gameHeader, game, GameUploader.VERSION);
+                out.write(gameHeader.array());
+                game.writeTo(out);
+                written++;
+            }
+            out.flush();
+            return written;
+        } finally {
+            readers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Hands the game to the function as a payload that streams its data from the segment file, only until the
+     * function returns.
+     *
+     * @return what the function returned, null if the game isn't in the archive
+     */
+    public <T> T withGame(long hash, Function<GamePayload, T> function) throws IOException {
+        readers.incrementAndGet();
+        try {
+            ArchivedGame game = current(hash);
+            return game == null ? null : function.apply(game);
+        } finally {
+            readers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Copies the games of a segment that's mostly dropped games to the end of the archive and deletes it, unless games
+     * are being streamed out.
+     *
+     * @return true if there's another segment to compact
+     */
+    public synchronized boolean compact() throws IOException {
+        if (!isEnabled() || readers.get() > 0) return false;
+        List<Integer> sparse = new ArrayList<>();
+        for (Map.Entry<Integer, Long> segment : segmentBytes.entrySet()) {
+            if (segment.getKey() != activeSegment && liveSegmentBytes.getOrDefault(segment.getKey(), 0L) * 2 < segment.getValue()) {
+                sparse.add(segment.getKey());
+            }
+        }
+        if (sparse.isEmpty()) return false;
+        int id = sparse.get(0);
+        List<Integer> slots = new ArrayList<>();
+        for (int i = 0; i < byStartTime.size(); i++) {
+            if (segmentOf(byStartTime.get(i)) == id) {
+                slots.add(byStartTime.get(i));
+            }
+        }
+        for (int slot : slots) {
+            move(slot);
+        }
+        deleteSegment(id);
+        return sparse.size() > 1;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (index != null) {
+            index.force();
+        }
+        for (FileChannel segment : segments.values()) {
+            closeQuietly(segment);
+        }
+        segments.clear();
+        closeQuietly(indexChannel);
+    }
+
+    // looked up again by hash, compaction may have moved the game since it was found
+    private synchronized ArchivedGame current(long hash) throws IOException {
+        int slot = byHash.find(hash);
+        if (slot < 0) return null;
+        ArchiveEntry entry = entry(slot);
+        return new ArchivedGame(entry, segment(entry.getSegment()));
+    }
+
+    private boolean expired(long startTime) {
+        return maxAgeMillis > 0 && startTime < System.currentTimeMillis() - maxAgeMillis;
+    }
+
+    /**
+     * Drops the oldest games while there are too many bytes of them or they're too old, then deletes the segments left
+     * without games and compacts the index if it's mostly dropped entries.
+     */
+    private void retain() throws IOException {
+        int dropped = 0;
+        while (byStartTime.size() > 0) {
+            int slot = byStartTime.get(0);
+            if (liveBytes <= maxBytes && !expired(startTime(slot))) break;
+            unlink(slot);
+            dropped++;
+        }
+        if (dropped > 0) {
+            gamesDropped.add(dropped);
+            logger.info("Dropped " + dropped + " old games from the archive, " + size() + " games are kept.");
+        }
+        if (readers.get() == 0) {
+            for (int id : new ArrayList<>(segmentBytes.keySet())) {
+                if (id != activeSegment && liveSegmentBytes.getOrDefault(id, 0L) == 0) {
+                    deleteSegment(id);
+                }
+            }
+        }
+        if (count > INITIAL_CAPACITY && byHash.size() * 2 < count) {
+            compactIndex();
+        }
+    }
+
+    private void move(int slot) throws IOException {
+        ArchiveEntry moved = entry(slot);
+        long recordSize = RECORD_HEADER_SIZE + moved.getLength();
+        FileChannel source = segment(moved.getSegment());
+        FileChannel target = segmentFor(recordSize);
+        long position = target.size();
+        long from = moved.getOffset() - RECORD_HEADER_SIZE;
+        long copied = 0;
+        while (copied < recordSize) {
+            long transferred = source.transferTo(from + copied, recordSize - copied, target.position(position + copied));
+            if (transferred <= 0) throw new IOException("Archived game is truncated in segment " + moved.getSegment());
+            copied += transferred;
+        }
+        unlink(slot);
+        append(new ArchiveEntry(activeSegment, position + RECORD_HEADER_SIZE, moved.getLength(), moved.getCrc(),
+                moved.getGameInfo(), moved.getStartTime(), moved.getEndTime(), moved.getHash()));
+    }
+
+    // Cut short, the entries copied so far are duplicates of the ones they were copied from and ignored on load.
+    private void compactIndex() {
+        int next = 0;
+        for (int slot = 0; slot < count; slot++) {
+            if (index.getInt(position(slot) + STATE_FIELD) != LIVE) continue;
+            if (slot != next) {
+                copyEntry(slot, next);
+            }
+            next++;
+        }
+        count = next;
+        index.putInt(COUNT_OFFSET, count);
+        byStartTime.clear();
+        byHash.clear();
+        byGameType.clear();
+        for (int slot = 0; slot < count; slot++) {
+            indexSlot(slot);
+        }
+    }
+
+    private void open() throws IOException {
+        indexChannel = FileChannel.open(indexFile().toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = indexChannel.size();
+        map(Math.max(size, position(INITIAL_CAPACITY)));
+        for (int id : segmentIds()) {
+            segmentBytes.put(id, segmentFile(id).length());
+        }
+        boolean readable = size >= INDEX_HEADER_SIZE && index.getInt(0) == INDEX_MAGIC && index.getInt(4) == INDEX_VERSION;
+        if (!readable) {
+            if (size > 0) {
+                logger.warn("Archive index is unreadable, rebuilding it from the segments.");
+            }
+            index.putInt(0, INDEX_MAGIC);
+            index.putInt(4, INDEX_VERSION);
+        }
+        int stored = readable ? Math.max(0, Math.min(index.getInt(COUNT_OFFSET), capacity())) : 0;
+        for (int slot = 0; slot < stored; slot++) {
+            if (index.getInt(position(slot) + STATE_FIELD) != LIVE || !isValid(slot) || byHash.find(hash(slot)) >= 0) continue;
+            if (slot != count) {
+                copyEntry(slot, count);
+            }
+            account(count);
+            count++;
+        }
+        index.putInt(COUNT_OFFSET, count);
+
+        // only records after the last entry of the active segment can be missing from the index, unless it was lost
+        List<Integer> ids = new ArrayList<>(segmentBytes.keySet());
+        int indexedSegment = readable ? index.getInt(ACTIVE_SEGMENT_OFFSET) : -1;
+        for (int id : ids) {
+            if (id < indexedSegment) continue;
+            activeSegment = id;
+            recover(id, id == indexedSegment ? index.getLong(ACTIVE_END_OFFSET) : 0);
+        }
+        activeSegment = Math.max(activeSegment, indexedSegment);
+    }
+
+    /**
+     * Indexes the complete records from the position on, and cuts off one that was only partly written.
+     */
+    private void recover(int id, long position) throws IOException {
+        FileChannel segment = segment(id);
+        long size = segment.size();
+        while (position + RECORD_HEADER_SIZE <= size) {
+            header.clear();
+            readFully(segment, header, position);
+            header.flip();
+            if (header.getInt() != RECORD_MAGIC) break;
+            int length = header.getInt();
+            ArchiveEntry entry = new ArchiveEntry(id, position + RECORD_HEADER_SIZE, length, header.getInt(),
+                    header.getInt(), header.getLong(), header.getLong(), header.getLong());
+            if (length < 0 || entry.getOffset() + length > size || !crcMatches(segment, entry)) break;
+            if (byHash.find(entry.getHash()) < 0) {
+                append(entry);
+            }
+            position = entry.getOffset() + length;
+        }
+        if (size > position) {
+            segment.truncate(position);
+            segmentBytes.put(id, position);
+        }
+    }
+
+    private boolean crcMatches(FileChannel segment, ArchiveEntry entry) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(entry.getLength());
+        readFully(segment, data, entry.getOffset());
+        crc.reset();
+        crc.update(data.array(), 0, entry.getLength());
+        return (int) crc.getValue() == entry.getCrc();
+    }
+
+    // the active segment, or the next one if the record doesn't fit in it
+    private FileChannel segmentFor(long recordSize) throws IOException {
+        long size = segmentBytes.getOrDefault(activeSegment, 0L);
+        if (size > 0 && size + recordSize > SEGMENT_SIZE) {
+            activeSegment++;
+        }
+        return segment(activeSegment);
+    }
+
+    private void append(ArchiveEntry entry) {
+        if (count == capacity()) {
+            map(position(capacity() * 2));
+        }
+        int slot = count++;
+        int position = position(slot);
+        index.putInt(position, entry.getSegment());
+        index.putLong(position + OFFSET_FIELD, entry.getOffset());
+        index.putInt(position + LENGTH_FIELD, entry.getLength());
+        index.putInt(position + CRC_FIELD, entry.getCrc());
+        index.putInt(position + GAME_INFO_FIELD, entry.getGameInfo());
+        index.putLong(position + START_TIME_FIELD, entry.getStartTime());
+        index.putLong(position + END_TIME_FIELD, entry.getEndTime());
+        index.putLong(position + HASH_FIELD, entry.getHash());
+        index.putInt(position + STATE_FIELD, LIVE);
+        index.putInt(COUNT_OFFSET, count);
+        long end = entry.getOffset() + entry.getLength();
+        segmentBytes.merge(entry.getSegment(), end, Math::max);
+        if (entry.getSegment() == activeSegment) {
+            index.putInt(ACTIVE_SEGMENT_OFFSET, activeSegment);
+            index.putLong(ACTIVE_END_OFFSET, end);
+        }
+        account(slot);
+    }
+
+    private void account(int slot) {
+        long recordSize = RECORD_HEADER_SIZE + length(slot);
+        liveBytes += recordSize;
+        liveSegmentBytes.merge(segmentOf(slot), recordSize, Long::sum);
+        indexSlot(slot);
+    }
+
+    private void indexSlot(int slot) {
+        byStartTime.add(slot);
+        byHash.add(slot);
+        byGameType.computeIfAbsent(ArchiveEntry.gameType(index.getInt(position(slot) + GAME_INFO_FIELD)),
+                gameType -> new SlotIndex(this::startTime)).add(slot);
+    }
+
+    private void unlink(int slot) {
+        long recordSize = RECORD_HEADER_SIZE + length(slot);
+        liveBytes -= recordSize;
+        liveSegmentBytes.merge(segmentOf(slot), -recordSize, Long::sum);
+        byStartTime.remove(slot);
+        byHash.remove(slot);
+        byGameType.get(ArchiveEntry.gameType(index.getInt(position(slot) + GAME_INFO_FIELD))).remove(slot);
+        index.putInt(position(slot) + STATE_FIELD, DROPPED);
+    }
+
+    private boolean isValid(int slot) {
+        Long size = segmentBytes.get(segmentOf(slot));
+        long offset = index.getLong(position(slot) + OFFSET_FIELD);
+        return size != null && length(slot) >= 0 && offset >= RECORD_HEADER_SIZE && offset + length(slot) <= size;
+    }
+
+    private void copyEntry(int from, int to) {
+        for (int i = 0; i < ENTRY_SIZE; i += 4) {
+            index.putInt(position(to) + i, index.getInt(position(from) + i));
+        }
+    }
+
+    private ArchiveEntry entry(int slot) {
+        int position = position(slot);
+        return new ArchiveEntry(index.getInt(position), index.getLong(position + OFFSET_FIELD), index.getInt(position + LENGTH_FIELD),
+                index.getInt(position + CRC_FIELD), index.getInt(position + GAME_INFO_FIELD), index.getLong(position + START_TIME_FIELD),
+                index.getLong(position + END_TIME_FIELD), index.getLong(position + HASH_FIELD));
+    }
+
+    private int segmentOf(int slot) {
+        return index.getInt(position(slot));
+    }
+
+    private int length(int slot) {
+        return index.getInt(position(slot) + LENGTH_FIELD);
+    }
+
+    private long startTime(int slot) {
+        return index.getLong(position(slot) + START_TIME_FIELD);
+    }
+
+    private long hash(int slot) {
+        return index.getLong(position(slot) + HASH_FIELD);
+    }
+
+    private static int position(int slot) {
+        return INDEX_HEADER_SIZE + slot * ENTRY_SIZE;
+    }
+
+    private int capacity() {
+        return (index.capacity() - INDEX_HEADER_SIZE) / ENTRY_SIZE;
+    }
+
+    // mapping past the end of the file grows it, the previous mapping goes away with the buffer
+    private void map(long size) {
+        try {
+            index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to map the archive index : " + e.getMessage(), e);
+        }
+    }
+
+    private FileChannel segment(int id) throws IOException {
+        FileChannel segment = segments.get(id);
+        if (segment == null) {
+            segment = FileChannel.open(segmentFile(id).toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segments.put(id, segment);
+        }
+        return segment;
+    }
+
+    private void deleteSegment(int id) throws IOException {
+        closeQuietly(segments.remove(id));
+        Files.deleteIfExists(segmentFile(id).toPath());
+        segmentBytes.remove(id);
+        liveSegmentBytes.remove(id);
+    }
+
+    private List<Integer> segmentIds() {
+        List<Integer> ids = new ArrayList<>();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                try {
+                    ids.add(Integer.parseInt(file.getName().substring(0, file.getName().length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    logger.warn("Ignoring unknown file in archive : " + file.getName());
+                }
+            }
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private File segmentFile(int id) {
+        return new File(directory, String.format("%08d%s", id, SEGMENT_SUFFIX));
+    }
+
+    private File indexFile() {
+        return new File(directory, "archive.idx");
+    }
+
+    /**
+     * Writes a game's data into a segment as it's handed over, updating the crc on the way.
+     */
+    private class RecordOutput extends OutputStream {
+
+        private final FileChannel segment;
+        private long position;
+
+        RecordOutput(FileChannel segment, long position) {
+            this.segment = segment;
+            this.position = position;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            crc.update(b, off, len);
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+            writeFully(segment, buffer, position);
+            position += len;
+        }
+    }
+
+    /**
+     * An archived game read straight from its segment.  Only handed out while the readers count is raised, so the
+     * segment isn't deleted or compacted under it.
+     */
+    private static class ArchivedGame implements GamePayload {
+
+        private final ArchiveEntry entry;
+        private final FileChannel segment;
+
+        ArchivedGame(ArchiveEntry entry, FileChannel segment) {
+            this.entry = entry;
+            this.segment = segment;
+        }
+
+        @Override
+        public int getGameType() {
+            return entry.getGameType();
+        }
+
+        @Override
+        public int getRank() {
+            return entry.getRank();
+        }
+
+        @Override
+        public int getDictionaryId() {
+            return entry.getDictionaryId();
+        }
+
+        @Override
+        public long getStartTime() {
+            return entry.getStartTime();
+        }
+
+        @Override
+        public long getEndTime() {
+            return entry.getEndTime();
+        }
+
+        @Override
+        public long getHash() {
+            return entry.getHash();
+        }
+
+        @Override
+        public int getLength() {
+            return entry.getLength();
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = entry.getOffset();
+            long end = position + entry.getLength();
+            while (position < end) {
+                long transferred = segment.transferTo(position, end - position, target);
+                if (transferred <= 0) throw new IOException("Archived game is truncated in segment " + entry.getSegment());
+                position += transferred;
+            }
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            return new InputStream() {
+                private final ByteBuffer single = ByteBuffer.allocate(1);
+                private long position = entry.getOffset();
+                private final long end = position + entry.getLength();
+
+                @Override
+                public int read() throws IOException {
+                    single.clear();
+                    return read(single) < 0 ? -1 : single.get(0) & 0xFF;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return read(ByteBuffer.wrap(b, off, len));
+                }
+
+                private int read(ByteBuffer buffer) throws IOException {
+                    if (position >= end) return -1;
+                    if (buffer.remaining() > end - position) {
+                        buffer.limit(buffer.position() + (int) (end - position));
+                    }
+                    int read = segment.read(buffer, position);
+                    if (read < 0) throw new IOException("Archived game is truncated in segment " + entry.getSegment());
+                    position += read;
+                    return read;
+                }
+            };
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("Unexpected end of file");
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("Failed to close : " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.hearthgames.client.archive;
+
+import java.util.Arrays;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Slots of the archive index's entries sorted by a key read from the entry, so a lookup or the start of a range is a
+ * binary search.  Only the slots are kept, 4 bytes a game, the keys stay in the memory mapped index.  Entries with
+ * the same key keep the order they were added in.
+ */
+class SlotIndex {
+
+    private final IntToLongFunction key;
+    private int[] slots = new int[64];
+    private int size;
+
+    SlotIndex(IntToLongFunction key) {
+        this.key = key;
+    }
+
+    void add(int slot) {
+        int i = upperBound(key.applyAsLong(slot));
+        if (size == slots.length) {
+            slots = Arrays.copyOf(slots, size * 2);
+        }
+        System.arraycopy(slots, i, slots, i + 1, size - i);
+        slots[i] = slot;
+        size++;
+    }
+
+    boolean remove(int slot) {
+        long value = key.applyAsLong(slot);
+        for (int i = lowerBound(value); i < size && key.applyAsLong(slots[i]) == value; i++) {
+            if (slots[i] == slot) {
+                System.arraycopy(slots, i + 1, slots, i, size - i - 1);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the slot of an entry with the key, -1 if there's none
+     */
+    int find(long value) {
+        int i = lowerBound(value);
+        return i < size && key.applyAsLong(slots[i]) == value ? slots[i] : -1;
+    }
+
+    /**
+     * @return the position of the first entry with a key at least the value
+     */
+    int lowerBound(long value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (key.applyAsLong(slots[middle]) < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int upperBound(long value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (key.applyAsLong(slots[middle]) <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    int get(int position) {
+        return slots[position];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
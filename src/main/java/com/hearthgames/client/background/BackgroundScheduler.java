@@ -0,0 +1,194 @@
+package com.hearthgames.client.background;
+
+import com.hearthgames.client.config.ApplicationProperties;
+import com.hearthgames.client.metrics.Counter;
+import com.hearthgames.client.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the client's low priority work (the backlog upload, archive compaction) only while no game is being played, so
+ * it never competes with Hearthstone for the CPU or the network during a match.
+ *
+ * The {@link com.hearthgames.client.log.GameRecorder}s report when a game starts and ends.  Work is held back while any
+ * game is in progress and for background-quiet-millis after the last one ended, unless its log has been quiet for
+ * background-idle-millis: the player left the game or Hearthstone is gone.
+ *
+ * Tasks are run a slice at a time on one minimum priority thread, taking turns.  Each has its own rate limit, the
+ * thread sleeps after a slice so its CPU time stays under background-cpu-percent of a core, and tasks that send data
+ * take it from a shared budget of background-max-bytes-per-second.  A task with nothing to do is asked again later.
+ */
+@Component
+public class BackgroundScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackgroundScheduler.class);
+
+    private static final long IDLE_POLL_MILLIS = 10000;
+
+    private final int cpuPercent;
+    private final long quietMillis;
+    private final RateLimiter bandwidth;
+    private final Counter slicesRun;
+    private final Counter throttledMillis;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final List<ScheduledTask> tasks = new ArrayList<>();
+    // games in progress, by recorder, and when the last one ended
+    private final Set<Object> games = new HashSet<>();
+    private long gameEndedAt;
+    private int next;
+    private Thread worker;
+    private volatile boolean running = true;
+
+    @Autowired
+    public BackgroundScheduler(ApplicationProperties properties, MetricsRegistry metrics) {
+        this.cpuPercent = Math.max(1, Math.min(100, properties.getBackgroundCpuPercent()));
+        this.quietMillis = properties.getBackgroundQuietMillis();
+        long bytesPerSecond = properties.getBackgroundMaxBytesPerSecond();
+        // a second's worth can go at once, or a whole batch once it's paid off
+        this.bandwidth = bytesPerSecond > 0 ? new RateLimiter(bytesPerSecond, bytesPerSecond) : null;
+        this.slicesRun = metrics.counter("background_slices_total", "Slices of low priority work run between games");
+        this.throttledMillis = metrics.counter("background_throttled_millis_total", "Time low priority work slept to stay within its CPU and bandwidth budgets");
+        metrics.gauge("games_in_progress", "Games being played, low priority work waits for them", this::getGamesInProgress);
+        // the log may be about to show a game that was in progress when the client started
+        this.gameEndedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Runs the task's slices between games, at most slicesPerSecond of them.
+     */
+    public synchronized void submit(String name, double slicesPerSecond, BackgroundTask task) {
+        if (!running) return;
+        tasks.add(new ScheduledTask(name, task, new RateLimiter(slicesPerSecond, 1)));
+        if (worker == null) {
+            worker = new Thread(this::work, "background-work");
+            worker.setPriority(Thread.MIN_PRIORITY);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        notifyAll();
+    }
+
+    public synchronized void gameStarted(Object game) {
+        games.add(game);
+    }
+
+    /**
+     * Also called for a game that's still open once its log has gone idle, it counts as started again with its next line.
+     */
+    public synchronized void gameEnded(Object game) {
+        if (games.remove(game)) {
+            gameEndedAt = System.currentTimeMillis();
+            notifyAll();
+        }
+    }
+
+    public synchronized int getGamesInProgress() {
+        return games.size();
+    }
+
+    /**
+     * Waits until the bytes fit in the bandwidth budget and no game is being played.  Only for the tasks' slices, before
+     * they send the bytes.
+     */
+    public void awaitBandwidth(long bytes) throws InterruptedException {
+        if (bandwidth != null) {
+            long waitNanos = bandwidth.reserve(bytes);
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+                throttledMillis.add(TimeUnit.NANOSECONDS.toMillis(waitNanos));
+            }
+        }
+        awaitQuiet();
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private void work() {
+        try {
+            while (running) {
+                awaitQuiet();
+                ScheduledTask task = nextTask();
+                if (task == null) continue;
+                long cpuBefore = cpuTime();
+                boolean more;
+                try {
+                    more = task.task.runSlice();
+                } catch (RuntimeException e) {
+                    logger.error("Background task " + task.name + " failed : " + e.getMessage());
+                    more = false;
+                }
+                slicesRun.increment();
+                long now = System.currentTimeMillis();
+                long waitMillis = TimeUnit.NANOSECONDS.toMillis(task.limiter.reserve(1));
+                task.nextRun = now + (more ? waitMillis : Math.max(waitMillis, IDLE_POLL_MILLIS));
+                throttle(cpuTime() - cpuBefore);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // The next task due in turn, or null after waiting for the first one to come due.
+    private synchronized ScheduledTask nextTask() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        long firstDue = Long.MAX_VALUE;
+        for (int i = 0; i < tasks.size(); i++) {
+            ScheduledTask task = tasks.get((next + i) % tasks.size());
+            if (task.nextRun <= now) {
+                next = (next + i + 1) % tasks.size();
+                return task;
+            }
+            firstDue = Math.min(firstDue, task.nextRun);
+        }
+        wait(Math.min(firstDue - now, IDLE_POLL_MILLIS));
+        return null;
+    }
+
+    private synchronized void awaitQuiet() throws InterruptedException {
+        while (running) {
+            long waitMillis = games.isEmpty() ? gameEndedAt + quietMillis - System.currentTimeMillis() : IDLE_POLL_MILLIS;
+            if (waitMillis <= 0) return;
+            wait(waitMillis);
+        }
+        throw new InterruptedException();
+    }
+
+    // sleeps long enough that the slice's CPU time is the budgeted share of the slice and the sleep
+    private void throttle(long cpuNanos) throws InterruptedException {
+        if (cpuPercent >= 100 || cpuNanos <= 0) return;
+        long sleepNanos = cpuNanos * (100 - cpuPercent) / cpuPercent;
+        TimeUnit.NANOSECONDS.sleep(sleepNanos);
+        throttledMillis.add(TimeUnit.NANOSECONDS.toMillis(sleepNanos));
+    }
+
+    private long cpuTime() {
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    private static class ScheduledTask {
+        private final String name;
+        private final BackgroundTask task;
+        private final RateLimiter limiter;
+        private long nextRun;
+
+        ScheduledTask(String name, BackgroundTask task, RateLimiter limiter) {
+            this.name = name;
+            this.task = task;
+            this.limiter = limiter;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.hearthgames.client.background;
+
+/**
+ * Low priority work, run a slice at a time by the {@link BackgroundScheduler} while no game is being played.
+ */
+@FunctionalInterface
+public interface BackgroundTask {
+
+    /**
+     * Does one slice of the work, small enough that a game starting meanwhile isn't held up by it for long.
+     *
+     * @return true if there's more to do straight away, false to be asked again later
+     */
+    boolean runSlice();
+}
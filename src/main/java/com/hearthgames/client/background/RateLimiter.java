@@ -0,0 +1,37 @@
+package com.hearthgames.client.background;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket.  Permits are taken even when there aren't enough, the caller is told how long to wait instead, so a
+ * large request (a batch of games) goes through on its own and the requests after it wait for the bucket to refill.
+ */
+class RateLimiter {
+
+    private final double permitsPerNano;
+    private final double burst;
+    private double permits;
+    private long refilledAt = System.nanoTime();
+
+    /**
+     * @param burst permits that build up while nothing is taken, the bucket starts full
+     */
+    RateLimiter(double permitsPerSecond, double burst) {
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.permits = burst;
+    }
+
+    /**
+     * Takes the permits.
+     *
+     * @return nanos to wait before acting on them, 0 if they were there
+     */
+    synchronized long reserve(double taken) {
+        long now = System.nanoTime();
+        permits = Math.min(burst, permits + (now - refilledAt) * permitsPerNano);
+        refilledAt = now;
+        permits -= taken;
+        return permits >= 0 ? 0 : (long) (-permits / permitsPerNano);
+    }
+}
@@ -0,0 +1,109 @@
+package com.hearthgames.client.compression;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A preset deflate dictionary: text that looks like the Power log, so even the first lines of a game compress as if
+ * the compressor had already seen a game.  Dictionaries are made with {@link DictionaryTrainer} and shipped as
+ * dictionaries/power-&lt;id&gt;.dict on the classpath.  A dictionary never changes once released, a better one gets the
+ * next id, because the server needs the same bytes to inflate the games compressed with it.  Id 0 is no dictionary.
+ *
+ * None has been released yet.  An id is only taken by a dictionary trained on real Power.log samples, one trained on
+ * the benchmark corpus would be stuck with whatever the synthetic games got wrong.
+ */
+public final class CompressionDictionary {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompressionDictionary.class);
+
+    public static final int NONE = 0;
+    /** The newest released dictionary, none so far. */
+    public static final int LATEST = NONE;
+
+    /** Deflate only looks 32 KB back, anything before that in a dictionary is never used. */
+    public static final int MAX_SIZE = 32 * 1024;
+
+    private static final Map<Integer, CompressionDictionary> loaded = new ConcurrentHashMap<>();
+
+    private final int id;
+    private final byte[] bytes;
+    private final int adler;
+
+    public CompressionDictionary(int id, byte[] bytes) {
+        this.id = id;
+        this.bytes = bytes;
+        Adler32 checksum = new Adler32();
+        checksum.update(bytes, 0, bytes.length);
+        this.adler = (int) checksum.getValue();
+    }
+
+    /**
+     * @return the dictionary with the id, or null for {@link #NONE} or an id this client doesn't have
+     */
+    public static CompressionDictionary get(int id) {
+        if (id == NONE) return null;
+        CompressionDictionary dictionary = loaded.get(id);
+        if (dictionary == null) {
+            dictionary = load(id);
+            if (dictionary != null) {
+                loaded.putIfAbsent(id, dictionary);
+            }
+        }
+        return dictionary;
+    }
+
+    private static CompressionDictionary load(int id) {
+        try (InputStream in = CompressionDictionary.class.getResourceAsStream(resourceName(id))) {
+            if (in == null) {
+                logger.warn("Unknown compression dictionary " + id + ", compressing without one.");
+                return null;
+            }
+            return new CompressionDictionary(id, IOUtils.toByteArray(in));
+        } catch (IOException e) {
+            logger.warn("Unable to read compression dictionary " + id + " : " + e.getMessage());
+            return null;
+        }
+    }
+
+    static String resourceName(int id) {
+        return "/dictionaries/power-" + id + ".dict";
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getLength() {
+        return bytes.length;
+    }
+
+    /**
+     * @return the Adler-32 of the dictionary, which a zlib stream compressed with it carries in its header
+     */
+    public int getAdler() {
+        return adler;
+    }
+
+    /**
+     * Presets the dictionary, call it again after resetting the deflater.
+     */
+    public void apply(Deflater deflater) {
+        deflater.setDictionary(bytes);
+    }
+
+    /**
+     * Gives the inflater the dictionary once it asks for it, see {@link Inflater#needsDictionary()}.
+     */
+    public void apply(Inflater inflater) {
+        inflater.setDictionary(bytes);
+    }
+}
@@ -0,0 +1,182 @@
+package com.hearthgames.client.compression;
+
+import com.hearthgames.client.log.GameLogger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Builds a {@link CompressionDictionary} from sample logs.
+ *
+ * Deflate already finds anything repeated within the last 32 KB, so a dictionary only pays for the strings the
+ * compressor hasn't seen yet: everything at the start of a game, and names that come back every few hundred lines.  The
+ * logs are read in windows of about 32 KB worth of lines, and every run of up to six words of a line is counted once
+ * per window it appears in.  Runs are scored by windows times length, the best are packed into the dictionary with the
+ * highest scores last, where they're the fewest bytes back from the data.
+ *
+ * Run with: java -cp hearthgames-client.jar -Dloader.main=com.hearthgames.client.compression.DictionaryTrainer org.springframework.boot.loader.PropertiesLauncher [options] file...
+ *
+ * Options: --id=&lt;next id&gt; --size=32768 --out=dictionaries/power-&lt;id&gt;.dict
+ */
+public class DictionaryTrainer {
+
+    private static final Logger logger = LoggerFactory.getLogger(DictionaryTrainer.class);
+
+    private static final int WINDOW_LINES = 256;
+    private static final int MAX_WORDS = 6;
+    private static final int MIN_LENGTH = 4;
+    private static final int MAX_CANDIDATES = 2000000;
+
+    private final Map<String, Candidate> candidates = new HashMap<>();
+    private final Set<String> window = new HashSet<>();
+    private int windowLines;
+    private int windows;
+
+    public static void main(String[] args) throws IOException {
+        int id = CompressionDictionary.LATEST + 1;
+        int size = CompressionDictionary.MAX_SIZE;
+        String out = null;
+        List<File> files = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--id=")) {
+                id = Integer.parseInt(value(arg));
+            } else if (arg.startsWith("--size=")) {
+                size = Integer.parseInt(value(arg));
+            } else if (arg.startsWith("--out=")) {
+                out = value(arg);
+            } else {
+                files.add(new File(arg));
+            }
+        }
+        DictionaryTrainer trainer = new DictionaryTrainer();
+        for (File file : files) {
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    trainer.add(line);
+                }
+            }
+        }
+        byte[] dictionary = trainer.build(size);
+        File file = new File(out != null ? out : "dictionaries/power-" + id + ".dict");
+        if (file.getParentFile() != null && !file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
+            throw new IOException("Unable to create " + file.getParentFile());
+        }
+        try (OutputStream stream = Files.newOutputStream(file.toPath())) {
+            stream.write(dictionary);
+        }
+        logger.info("Wrote a " + dictionary.length + " byte dictionary from " + trainer.windows + " windows of the logs to " + file);
+    }
+
+    /**
+     * Counts the word runs of a log line, lines that none of the loggers we keep wrote are skipped.
+     */
+    public void add(String line) {
+        if (GameLogger.classify(line) == null) return;
+        int length = line.length();
+        int[] starts = new int[MAX_WORDS];
+        int words = 0;
+        for (int start = 0; start < length; ) {
+            int end = line.indexOf(' ', start);
+            if (end < 0) end = length;
+            if (end > start) {
+                // the runs of words ending with this one
+                starts[words % MAX_WORDS] = start;
+                words++;
+                for (int count = 1; count <= Math.min(words, MAX_WORDS); count++) {
+                    int runStart = starts[(words - count) % MAX_WORDS];
+                    // keep the space after the run, or the line feed at the end of the line
+                    String run = end < length ? line.substring(runStart, end + 1) : line.substring(runStart) + "\n";
+                    if (run.length() >= MIN_LENGTH) {
+                        count(run);
+                    }
+                }
+            }
+            start = end + 1;
+        }
+        if (++windowLines == WINDOW_LINES) {
+            endWindow();
+        }
+    }
+
+    /**
+     * @return the dictionary, at most size bytes
+     */
+    public byte[] build(int size) {
+        endWindow();
+        List<Candidate> ranked = new ArrayList<>(candidates.values());
+        ranked.removeIf(candidate -> candidate.windows < 2);
+        ranked.sort(Comparator.comparingLong(Candidate::score).reversed().thenComparing(candidate -> candidate.text));
+
+        // a run already inside a picked one is free, a picked run inside a new one is dropped
+        StringBuilder chosen = new StringBuilder();
+        List<Candidate> picked = new ArrayList<>();
+        int length = 0;
+        for (Candidate candidate : ranked) {
+            if (chosen.indexOf(candidate.text) >= 0) continue;
+            int freed = 0;
+            for (Candidate previous : picked) {
+                if (candidate.text.contains(previous.text)) freed += previous.text.length();
+            }
+            if (length - freed + candidate.text.length() > size) continue;
+            if (freed > 0) {
+                picked.removeIf(previous -> candidate.text.contains(previous.text));
+                chosen.setLength(0);
+                picked.forEach(previous -> chosen.append(previous.text));
+            }
+            chosen.append(candidate.text);
+            picked.add(candidate);
+            length += candidate.text.length() - freed;
+        }
+        StringBuilder dictionary = new StringBuilder(chosen.length());
+        for (int i = picked.size() - 1; i >= 0; i--) {
+            dictionary.append(picked.get(i).text);
+        }
+        return dictionary.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void count(String run) {
+        if (!window.add(run)) return;
+        Candidate candidate = candidates.get(run);
+        if (candidate == null) {
+            candidate = new Candidate(run);
+            candidates.put(run, candidate);
+        }
+        candidate.windows++;
+    }
+
+    private void endWindow() {
+        if (windowLines == 0) return;
+        window.clear();
+        windowLines = 0;
+        windows++;
+        // forget the runs only ever seen once so a big sample fits in memory
+        if (candidates.size() > MAX_CANDIDATES) {
+            candidates.values().removeIf(candidate -> candidate.windows < 2);
+        }
+    }
+
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+
+    private static class Candidate {
+        private final String text;
+        private int windows;
+
+        Candidate(String text) {
+            this.text = text;
+        }
+
+        long score() {
+            return (long) windows * (text.length() - 3);
+        }
+    }
+}
@@ -2,30 +2,23 @@ package com.hearthgames.client.config;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.LoggerContext;
-import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
-import ch.qos.logback.classic.spi.ILoggingEvent;
-import ch.qos.logback.core.OutputStreamAppender;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.hearthgames.client.log.GameLogManager;
-import com.hearthgames.client.log.LogConfigAnalyzerConfigurer;
+import ch.qos.logback.classic.PatternLayout;
 import com.hearthgames.client.ui.SystemTraySupportedJFrame;
-import com.hearthgames.client.ui.TextAreaOutputStream;
+import com.hearthgames.client.ui.TextAreaAppender;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 import javax.swing.*;
 import java.awt.*;
 import java.io.File;
-import java.io.IOException;
 
 @Configuration
-@ComponentScan("com.hearthgames.client")
 public class ApplicationConfiguration {
 
     private static final Logger logger = LoggerFactory.getLogger(ApplicationConfiguration.class);
@@ -62,27 +55,26 @@ public class ApplicationConfiguration {
         return logConfigFile;
     }
 
-    @Bean
-    @SuppressWarnings("all")
-    public ObjectMapper jacksonObjectMapper(Jackson2ObjectMapperBuilder builder) {
-        ObjectMapper objectMapper = builder.build();
-        objectMapper.enableDefaultTyping();
-        return objectMapper;
-    }
-
     @Bean
     public RestTemplate restTemplate() {
-        return new RestTemplate();
+        // HttpURLConnection keeps idle connections alive in a JVM wide cache, sized by this property
+        if (System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", String.valueOf(properties.getUploadMaxConnections()));
+        }
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(properties.getUploadConnectTimeoutMillis());
+        requestFactory.setReadTimeout(properties.getUploadReadTimeoutMillis());
+        requestFactory.setBufferRequestBody(false);
+        return new RestTemplate(requestFactory);
     }
 
-    @Autowired
-    private LogConfigAnalyzerConfigurer logConfigAnalyzerConfigurer;
-
-    @Autowired
-    private GameLogManager gameLogManager;
-
+    /**
+     * The window with the log, only without application.headless.  The log is tailed by {@link
+     * com.hearthgames.client.log.GameLogManager} either way.
+     */
     @Bean
-    public SystemTraySupportedJFrame frame() throws IOException, InterruptedException {
+    @Conditional(GuiCondition.class)
+    public SystemTraySupportedJFrame frame() {
         SystemTraySupportedJFrame frame = new SystemTraySupportedJFrame("HearthGames.com");
         JTextArea consoleTextArea = new JTextArea(10, 60);
 
@@ -97,25 +89,21 @@ public class ApplicationConfiguration {
 
         initLogger(consoleTextArea);
 
-        logConfigAnalyzerConfigurer.configure();
-        gameLogManager.start();
-
         return frame;
     }
 
     private void initLogger(JTextArea consoleTextArea) {
         LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
 
-        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
-        encoder.setContext(context);
-        encoder.setPattern("%d{HH:mm:ss} - %msg%n");
-        encoder.start();
+        PatternLayout layout = new PatternLayout();
+        layout.setContext(context);
+        layout.setPattern("%d{HH:mm:ss} - %msg%n");
+        layout.start();
 
-        OutputStreamAppender<ILoggingEvent> appender= new OutputStreamAppender<>();
-        appender.setName( "OutputStream Appender" );
+        TextAreaAppender appender = new TextAreaAppender(consoleTextArea, properties.getConsoleMaxLines());
+        appender.setName("TextArea Appender");
         appender.setContext(context);
-        appender.setEncoder(encoder);
-        appender.setOutputStream(new TextAreaOutputStream(consoleTextArea));
+        appender.setLayout(layout);
 
         appender.start();
 
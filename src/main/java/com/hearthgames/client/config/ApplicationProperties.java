@@ -3,6 +3,9 @@ package com.hearthgames.client.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 @ConfigurationProperties(prefix = "application")
 public class ApplicationProperties {
@@ -10,6 +13,43 @@ public class ApplicationProperties {
     private String uploadUrl;
     private String userHome;
     private String osName;
+    private String dataDir;
+    private int recordedGamesCapacity = 4096;
+    private int uploadThreads = 2;
+    private int uploadQueueSize = 16;
+    private int uploadMaxAttempts = 5;
+    private long uploadBackoffMillis = 2000L;
+    private long uploadMaxBackoffMillis = 60000L;
+    private String uploadBatchUrl;
+    private int uploadBatchMaxGames = 20;
+    private int uploadBatchMaxBytes = 4194304;
+    private boolean binaryUpload;
+    private int uploadConnectTimeoutMillis = 5000;
+    private int uploadReadTimeoutMillis = 30000;
+    private int uploadMaxConnections = 5;
+    private boolean liveEnabled;
+    private String liveUrl;
+    private long liveFlushMillis = 500L;
+    private int liveMaxLines = 200;
+    private int liveMaxUnackedFrames = 256;
+    private int metricsPort;
+    private String loggerProfile = "full";
+    private int compressionLevel = -1;
+    private int compressionDictionary;
+    private int gameMemoryBytes = 1048576;
+    private int gameMaxBytes = 16777216;
+    private long gameIdleTimeoutMillis = 1800000L;
+    private int consoleMaxLines = 1000;
+    private Boolean headless;
+    private List<LogSource> logSources = new ArrayList<>();
+    private long checkpointIntervalMillis = 5000L;
+    private long archiveMaxBytes = 268435456L;
+    private int archiveMaxAgeDays = 365;
+    private int archivePort;
+    private int backgroundCpuPercent = 25;
+    private long backgroundMaxBytesPerSecond = 1048576L;
+    private long backgroundQuietMillis = 10000L;
+    private long backgroundIdleMillis = 300000L;
 
     public String getUploadUrl() {
         return uploadUrl;
@@ -34,4 +74,335 @@ public class ApplicationProperties {
     public void setOsName(String osName) {
         this.osName = osName;
     }
+
+    public String getDataDir() {
+        return dataDir;
+    }
+
+    public void setDataDir(String dataDir) {
+        this.dataDir = dataDir;
+    }
+
+    public int getRecordedGamesCapacity() {
+        return recordedGamesCapacity;
+    }
+
+    public void setRecordedGamesCapacity(int recordedGamesCapacity) {
+        this.recordedGamesCapacity = recordedGamesCapacity;
+    }
+
+    public int getUploadThreads() {
+        return uploadThreads;
+    }
+
+    public void setUploadThreads(int uploadThreads) {
+        this.uploadThreads = uploadThreads;
+    }
+
+    public int getUploadQueueSize() {
+        return uploadQueueSize;
+    }
+
+    public void setUploadQueueSize(int uploadQueueSize) {
+        this.uploadQueueSize = uploadQueueSize;
+    }
+
+    public int getUploadMaxAttempts() {
+        return uploadMaxAttempts;
+    }
+
+    public void setUploadMaxAttempts(int uploadMaxAttempts) {
+        this.uploadMaxAttempts = uploadMaxAttempts;
+    }
+
+    public long getUploadBackoffMillis() {
+        return uploadBackoffMillis;
+    }
+
+    public void setUploadBackoffMillis(long uploadBackoffMillis) {
+        this.uploadBackoffMillis = uploadBackoffMillis;
+    }
+
+    public long getUploadMaxBackoffMillis() {
+        return uploadMaxBackoffMillis;
+    }
+
+    public void setUploadMaxBackoffMillis(long uploadMaxBackoffMillis) {
+        this.uploadMaxBackoffMillis = uploadMaxBackoffMillis;
+    }
+
+    public String getUploadBatchUrl() {
+        return uploadBatchUrl;
+    }
+
+    public void setUploadBatchUrl(String uploadBatchUrl) {
+        this.uploadBatchUrl = uploadBatchUrl;
+    }
+
+    public int getUploadBatchMaxGames() {
+        return uploadBatchMaxGames;
+    }
+
+    public void setUploadBatchMaxGames(int uploadBatchMaxGames) {
+        this.uploadBatchMaxGames = uploadBatchMaxGames;
+    }
+
+    public int getUploadBatchMaxBytes() {
+        return uploadBatchMaxBytes;
+    }
+
+    public void setUploadBatchMaxBytes(int uploadBatchMaxBytes) {
+        this.uploadBatchMaxBytes = uploadBatchMaxBytes;
+    }
+
+    public boolean isBinaryUpload() {
+        return binaryUpload;
+    }
+
+    public void setBinaryUpload(boolean binaryUpload) {
+        this.binaryUpload = binaryUpload;
+    }
+
+    public int getUploadConnectTimeoutMillis() {
+        return uploadConnectTimeoutMillis;
+    }
+
+    public void setUploadConnectTimeoutMillis(int uploadConnectTimeoutMillis) {
+        this.uploadConnectTimeoutMillis = uploadConnectTimeoutMillis;
+    }
+
+    public int getUploadReadTimeoutMillis() {
+        return uploadReadTimeoutMillis;
+    }
+
+    public void setUploadReadTimeoutMillis(int uploadReadTimeoutMillis) {
+        this.uploadReadTimeoutMillis = uploadReadTimeoutMillis;
+    }
+
+    public int getUploadMaxConnections() {
+        return uploadMaxConnections;
+    }
+
+    public void setUploadMaxConnections(int uploadMaxConnections) {
+        this.uploadMaxConnections = uploadMaxConnections;
+    }
+
+    public boolean isLiveEnabled() {
+        return liveEnabled;
+    }
+
+    public void setLiveEnabled(boolean liveEnabled) {
+        this.liveEnabled = liveEnabled;
+    }
+
+    public String getLiveUrl() {
+        return liveUrl;
+    }
+
+    public void setLiveUrl(String liveUrl) {
+        this.liveUrl = liveUrl;
+    }
+
+    public long getLiveFlushMillis() {
+        return liveFlushMillis;
+    }
+
+    public void setLiveFlushMillis(long liveFlushMillis) {
+        this.liveFlushMillis = liveFlushMillis;
+    }
+
+    public int getLiveMaxLines() {
+        return liveMaxLines;
+    }
+
+    public void setLiveMaxLines(int liveMaxLines) {
+        this.liveMaxLines = liveMaxLines;
+    }
+
+    public int getLiveMaxUnackedFrames() {
+        return liveMaxUnackedFrames;
+    }
+
+    public void setLiveMaxUnackedFrames(int liveMaxUnackedFrames) {
+        this.liveMaxUnackedFrames = liveMaxUnackedFrames;
+    }
+
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    public void setMetricsPort(int metricsPort) {
+        this.metricsPort = metricsPort;
+    }
+
+    public String getLoggerProfile() {
+        return loggerProfile;
+    }
+
+    public void setLoggerProfile(String loggerProfile) {
+        this.loggerProfile = loggerProfile;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    public int getCompressionDictionary() {
+        return compressionDictionary;
+    }
+
+    public void setCompressionDictionary(int compressionDictionary) {
+        this.compressionDictionary = compressionDictionary;
+    }
+
+    public int getGameMemoryBytes() {
+        return gameMemoryBytes;
+    }
+
+    public void setGameMemoryBytes(int gameMemoryBytes) {
+        this.gameMemoryBytes = gameMemoryBytes;
+    }
+
+    public int getGameMaxBytes() {
+        return gameMaxBytes;
+    }
+
+    public void setGameMaxBytes(int gameMaxBytes) {
+        this.gameMaxBytes = gameMaxBytes;
+    }
+
+    public long getGameIdleTimeoutMillis() {
+        return gameIdleTimeoutMillis;
+    }
+
+    public void setGameIdleTimeoutMillis(long gameIdleTimeoutMillis) {
+        this.gameIdleTimeoutMillis = gameIdleTimeoutMillis;
+    }
+
+    public int getConsoleMaxLines() {
+        return consoleMaxLines;
+    }
+
+    public void setConsoleMaxLines(int consoleMaxLines) {
+        this.consoleMaxLines = consoleMaxLines;
+    }
+
+    public Boolean getHeadless() {
+        return headless;
+    }
+
+    public void setHeadless(Boolean headless) {
+        this.headless = headless;
+    }
+
+    public List<LogSource> getLogSources() {
+        return logSources;
+    }
+
+    public void setLogSources(List<LogSource> logSources) {
+        this.logSources = logSources;
+    }
+
+    public long getCheckpointIntervalMillis() {
+        return checkpointIntervalMillis;
+    }
+
+    public void setCheckpointIntervalMillis(long checkpointIntervalMillis) {
+        this.checkpointIntervalMillis = checkpointIntervalMillis;
+    }
+
+    public long getArchiveMaxBytes() {
+        return archiveMaxBytes;
+    }
+
+    public void setArchiveMaxBytes(long archiveMaxBytes) {
+        this.archiveMaxBytes = archiveMaxBytes;
+    }
+
+    public int getArchiveMaxAgeDays() {
+        return archiveMaxAgeDays;
+    }
+
+    public void setArchiveMaxAgeDays(int archiveMaxAgeDays) {
+        this.archiveMaxAgeDays = archiveMaxAgeDays;
+    }
+
+    public int getArchivePort() {
+        return archivePort;
+    }
+
+    public void setArchivePort(int archivePort) {
+        this.archivePort = archivePort;
+    }
+
+    public int getBackgroundCpuPercent() {
+        return backgroundCpuPercent;
+    }
+
+    public void setBackgroundCpuPercent(int backgroundCpuPercent) {
+        this.backgroundCpuPercent = backgroundCpuPercent;
+    }
+
+    public long getBackgroundMaxBytesPerSecond() {
+        return backgroundMaxBytesPerSecond;
+    }
+
+    public void setBackgroundMaxBytesPerSecond(long backgroundMaxBytesPerSecond) {
+        this.backgroundMaxBytesPerSecond = backgroundMaxBytesPerSecond;
+    }
+
+    public long getBackgroundQuietMillis() {
+        return backgroundQuietMillis;
+    }
+
+    public void setBackgroundQuietMillis(long backgroundQuietMillis) {
+        this.backgroundQuietMillis = backgroundQuietMillis;
+    }
+
+    public long getBackgroundIdleMillis() {
+        return backgroundIdleMillis;
+    }
+
+    public void setBackgroundIdleMillis(long backgroundIdleMillis) {
+        this.backgroundIdleMillis = backgroundIdleMillis;
+    }
+
+    /**
+     * A Hearthstone install to record, such as another account in its own Wine prefix.  Without a log config file
+     * Hearthstone's log.config is left alone for that install.
+     */
+    public static class LogSource {
+
+        private String name;
+        private String logFile;
+        private String logConfigFile;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getLogFile() {
+            return logFile;
+        }
+
+        public void setLogFile(String logFile) {
+            this.logFile = logFile;
+        }
+
+        public String getLogConfigFile() {
+            return logConfigFile;
+        }
+
+        public void setLogConfigFile(String logConfigFile) {
+            this.logConfigFile = logConfigFile;
+        }
+    }
 }
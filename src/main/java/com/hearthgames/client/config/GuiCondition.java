@@ -0,0 +1,28 @@
+package com.hearthgames.client.config;
+
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.env.PropertyResolver;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import java.awt.*;
+
+/**
+ * Matches when the client runs with its window.  application.headless picks the mode, when it isn't set the client is
+ * headless if there's no display to show the window on.
+ */
+public class GuiCondition implements Condition {
+
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        return !isHeadless(context.getEnvironment());
+    }
+
+    public static boolean isHeadless(PropertyResolver environment) {
+        String headless = environment.getProperty("application.headless");
+        if (headless != null && !headless.isEmpty()) {
+            return Boolean.parseBoolean(headless);
+        }
+        return GraphicsEnvironment.isHeadless();
+    }
+}
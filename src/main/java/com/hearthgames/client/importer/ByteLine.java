@@ -0,0 +1,84 @@
+package com.hearthgames.client.importer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A line copied out of a mapped log file, read as characters one byte at a time.  That's only right for ASCII, which
+ * is all the logger names and Power keywords are, so it's good enough to classify and parse a line without decoding
+ * it.  Use {@link #toString()} for the real text.  The line is reused for the next one.
+ */
+final class ByteLine implements CharSequence {
+
+    private byte[] bytes = new byte[512];
+    private int length;
+    private boolean ascii;
+
+    /**
+     * Copies the line, dropping the '\r' of a Windows line ending like the tailer does.
+     */
+    void set(ByteBuffer buffer, int start, int end) {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        length = end - start;
+        if (bytes.length < length) {
+            bytes = new byte[Math.max(bytes.length * 2, length)];
+        }
+        int nonAscii = 0;
+        for (int i = 0; i < length; i++) {
+            byte b = buffer.get(start + i);
+            bytes[i] = b;
+            nonAscii |= b;
+        }
+        ascii = nonAscii >= 0;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    boolean isAscii() {
+        return ascii;
+    }
+
+    boolean startsWith(String prefix) {
+        return regionMatches(0, prefix);
+    }
+
+    boolean contains(String text) {
+        char first = text.charAt(0);
+        for (int i = 0, last = length - text.length(); i <= last; i++) {
+            if (bytes[i] == first && regionMatches(i, text)) return true;
+        }
+        return false;
+    }
+
+    private boolean regionMatches(int offset, String text) {
+        if (offset + text.length() > length) return false;
+        for (int i = 0; i < text.length(); i++) {
+            if (bytes[offset + i] != text.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes[index] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,127 @@
+package com.hearthgames.client.importer;
+
+import com.hearthgames.client.log.GameLogger;
+import com.hearthgames.client.power.PowerEvent;
+import com.hearthgames.client.power.PowerEventType;
+import com.hearthgames.client.power.PowerLogParser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scans a range of fixed size chunks of a log file for {@link GameMarkers}, splitting the range in half until it's a
+ * single chunk.  The halves are joined left then right so the markers stay in file order.
+ *
+ * A chunk owns the lines that start inside it: it skips the tail of the line it starts in, which belongs to the chunk
+ * before, and reads past its end to finish its own last line.  A line without a line feed at the end of the file is
+ * still being written and is left alone, as the tailer would.  Only the chunk and a short overhang are mapped, so a
+ * task's mapping stays small however big the file is.
+ */
+class ChunkScanTask extends RecursiveTask<GameMarkers> {
+
+    private static final long serialVersionUID = 1;
+
+    private static final String POWER = GameLogger.Power.getName();
+    private static final String BOB = GameLogger.Bob.getName();
+    private static final String END_OF_GAME = "---RegisterFriendChallenge---";
+    // mapped past a chunk's end for its last line, a longer line is mapped again on its own
+    private static final int OVERHANG = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long chunkSize;
+    private final int firstChunk;
+    private final int lastChunk;
+
+    /**
+     * Scans chunks firstChunk (inclusive) to lastChunk (exclusive).
+     */
+    ChunkScanTask(FileChannel channel, long fileSize, long chunkSize, int firstChunk, int lastChunk) {
+        this.channel = channel;
+        this.fileSize = fileSize;
+        this.chunkSize = chunkSize;
+        this.firstChunk = firstChunk;
+        this.lastChunk = lastChunk;
+    }
+
+    @Override
+    protected GameMarkers compute() {
+        if (lastChunk - firstChunk == 1) {
+            try {
+                return scan(firstChunk * chunkSize, Math.min(fileSize, (firstChunk + 1) * chunkSize));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        int middle = (firstChunk + lastChunk) >>> 1;
+        ChunkScanTask right = new ChunkScanTask(channel, fileSize, chunkSize, middle, lastChunk);
+        right.fork();
+        GameMarkers left = new ChunkScanTask(channel, fileSize, chunkSize, firstChunk, middle).compute();
+        return left.append(right.join());
+    }
+
+    private GameMarkers scan(long start, long end) throws IOException {
+        GameMarkers markers = new GameMarkers();
+        // map from the byte before the chunk to see whether it starts on a line, and a little past its end for the
+        // last line
+        long from = Math.max(0, start - 1);
+        MappedByteBuffer buffer = map(from, end - from + OVERHANG);
+        int pos = 0;
+        if (start > 0) {
+            while (pos < buffer.limit() && from + pos < end && buffer.get(pos) != '\n') pos++;
+            pos++;
+        }
+        PowerLogParser parser = new PowerLogParser();
+        ByteLine line = new ByteLine();
+        while (from + pos < end) {
+            int limit = buffer.limit();
+            int lineEnd = pos;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') lineEnd++;
+            if (lineEnd == limit) {
+                if (from + limit >= fileSize) break;
+                // the line runs past the mapping, map again from its start, twice as far
+                if (pos == 0 && limit == Integer.MAX_VALUE) {
+                    throw new IOException("Line at " + from + " is longer than " + Integer.MAX_VALUE + " bytes");
+                }
+                from += pos;
+                buffer = map(from, Math.max(2L * (limit - pos), OVERHANG));
+                pos = 0;
+                continue;
+            }
+            if (buffer.get(pos) == '[') {
+                mark(markers, parser, line, buffer, pos, lineEnd, from);
+            }
+            pos = lineEnd + 1;
+        }
+        return markers;
+    }
+
+    private MappedByteBuffer map(long from, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(Math.min(fileSize - from, length), Integer.MAX_VALUE));
+    }
+
+    private static void mark(GameMarkers markers, PowerLogParser parser, ByteLine line, MappedByteBuffer buffer,
+                             int start, int end, long from) {
+        byte logger = end - start > 1 ? buffer.get(start + 1) : 0;
+        if (logger == 'P') {
+            line.set(buffer, start, end);
+            // only the rare lines that could be markers are worth parsing
+            if (!line.startsWith(POWER) || !(line.contains("CREATE_GAME") || line.contains("value=COMPLETE"))) return;
+            PowerEvent event = parser.parse(line);
+            if (event == null) return;
+            if (event.getType() == PowerEventType.CREATE_GAME) {
+                markers.add(from + start, GameMarkers.CREATE_GAME, event.getSource());
+            } else if (event.isGameEntity() && event.isTagChange("STATE", "COMPLETE")) {
+                markers.add(from + start, GameMarkers.GAME_COMPLETE, event.getSource());
+            }
+        } else if (logger == 'B') {
+            line.set(buffer, start, end);
+            if (line.startsWith(BOB) && line.contains(END_OF_GAME)) {
+                markers.add(from + end + 1, GameMarkers.END_OF_GAME, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.hearthgames.client.importer;
+
+import com.hearthgames.client.power.PowerEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The lines of a log file that decide where games start and end, in file order: the CREATE_GAME and game complete
+ * Power lines and the Bob line the recorder ends a game on.  A chunk of the file is scanned into its own markers
+ * without knowing what came before it, joining the chunks' markers in order and walking them once finds the games,
+ * including the ones that cross from one chunk into the next.
+ */
+final class GameMarkers {
+
+    static final byte CREATE_GAME = 0;
+    static final byte GAME_COMPLETE = 1;
+    static final byte END_OF_GAME = 2;
+
+    private long[] offsets = new long[64];
+    private byte[] kinds = new byte[64];
+    private byte[] sources = new byte[64];
+    private int size;
+
+    /**
+     * @param offset where the line starts, or for END_OF_GAME where the line after it starts
+     */
+    void add(long offset, byte kind, PowerEvent.Source source) {
+        if (size == offsets.length) {
+            grow(size * 2);
+        }
+        offsets[size] = offset;
+        kinds[size] = kind;
+        sources[size] = source == null ? -1 : (byte) source.ordinal();
+        size++;
+    }
+
+    /**
+     * Adds the markers of the chunk that follows this one.
+     */
+    GameMarkers append(GameMarkers next) {
+        if (size + next.size > offsets.length) {
+            grow(size + next.size);
+        }
+        System.arraycopy(next.offsets, 0, offsets, size, next.size);
+        System.arraycopy(next.kinds, 0, kinds, size, next.size);
+        System.arraycopy(next.sources, 0, sources, size, next.size);
+        size += next.size;
+        return this;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Replays the recorder's rules over the markers: only the source that logged CREATE_GAME is followed, and a game
+     * ends on the first end of game line after it completes.
+     *
+     * @return the games that were created and ended, lines before the first CREATE_GAME or after the last end of game
+     * aren't part of one
+     */
+    List<GameSpan> spans() {
+        List<GameSpan> spans = new ArrayList<>();
+        long start = 0;
+        int source = -1;
+        boolean complete = false;
+        long[] creates = new long[4];
+        int createCount = 0;
+        for (int i = 0; i < size; i++) {
+            boolean repeated = source != -1 && sources[i] != source;
+            switch (kinds[i]) {
+                case CREATE_GAME:
+                    if (repeated) break;
+                    source = sources[i];
+                    if (createCount == creates.length) {
+                        creates = Arrays.copyOf(creates, createCount * 2);
+                    }
+                    creates[createCount++] = offsets[i];
+                    break;
+                case GAME_COMPLETE:
+                    if (!repeated) {
+                        complete = true;
+                    }
+                    break;
+                case END_OF_GAME:
+                    if (!complete) break;
+                    if (createCount > 0) {
+                        spans.add(new GameSpan(start, offsets[i], Arrays.copyOf(creates, createCount)));
+                    }
+                    start = offsets[i];
+                    source = -1;
+                    complete = false;
+                    createCount = 0;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return spans;
+    }
+
+    private void grow(int capacity) {
+        offsets = Arrays.copyOf(offsets, capacity);
+        kinds = Arrays.copyOf(kinds, capacity);
+        sources = Arrays.copyOf(sources, capacity);
+    }
+}
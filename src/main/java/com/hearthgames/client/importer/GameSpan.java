@@ -0,0 +1,37 @@
+package com.hearthgames.client.importer;
+
+/**
+ * The part of a log file the recorder would have kept as one game: every line after the end of the previous game up
+ * to and including the line that ended this one.
+ */
+final class GameSpan {
+
+    private final long start;
+    private final long end;
+    private final long[] creates;
+
+    /**
+     * @param creates where the CREATE_GAME lines the recorder follows start, in order
+     */
+    GameSpan(long start, long end, long[] creates) {
+        this.start = start;
+        this.end = end;
+        this.creates = creates;
+    }
+
+    long getStart() {
+        return start;
+    }
+
+    long getEnd() {
+        return end;
+    }
+
+    long[] getCreates() {
+        return creates;
+    }
+
+    long getLength() {
+        return end - start;
+    }
+}
@@ -0,0 +1,240 @@
+package com.hearthgames.client.importer;
+
+import com.hearthgames.client.compression.CompressionDictionary;
+import com.hearthgames.client.config.ApplicationProperties;
+import com.hearthgames.client.log.GameData;
+import com.hearthgames.client.log.LoggerProfile;
+import com.hearthgames.client.log.RecordedGamesIndex;
+import com.hearthgames.client.spool.GameSpool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Imports games from old Hearthstone logs (output_log.txt, Player.log) into the spool, where the client uploads them
+ * from the next time it starts.  Games that were already recorded, live or by an earlier import, are skipped.
+ *
+ * Each file is memory mapped and imported in parallel on a fork-join pool:
+ * 1. the file is cut into chunks that are scanned for the lines that start and end games ({@link ChunkScanTask})
+ * 2. the chunks' markers are joined and walked once to find the games, wherever the chunk edges fell ({@link GameMarkers})
+ * 3. the games are compressed in parallel ({@link SpanRecorder}) and saved to the spool in order, a batch at a time
+ *
+ * Run with: java -cp hearthgames-client.jar -Dloader.main=com.hearthgames.client.importer.LogImporter org.springframework.boot.loader.PropertiesLauncher [options] file|directory...
+ * while the client isn't running, the spool can only be open in one process.
+ *
+ * Options: --data-dir=~/.hearthgames --threads=&lt;cores&gt; --chunk-size-mb=16 --recorded-games-capacity=4096
+ * --logger-profile=full --compression-level=-1 --compression-dictionary=0 (use the client's settings, games recorded
+ * with other settings won't match the ones it recorded)
+ */
+public class LogImporter implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogImporter.class);
+
+    private static final int GAMES_PER_THREAD = 4;
+
+    private final GameSpool spool;
+    private final RecordedGamesIndex recordedGames;
+    private final ForkJoinPool pool;
+    private final long chunkSize;
+    private final LoggerProfile profile;
+    private final CompressionDictionary dictionary;
+    private final int compressionLevel;
+
+    /**
+     * @param properties the logger profile and compression settings to record the games with
+     */
+    public LogImporter(GameSpool spool, RecordedGamesIndex recordedGames, ApplicationProperties properties, int threads, long chunkSize) {
+        this.spool = spool;
+        this.recordedGames = recordedGames;
+        this.pool = new ForkJoinPool(threads);
+        this.chunkSize = chunkSize;
+        this.profile = LoggerProfile.fromName(properties.getLoggerProfile());
+        this.dictionary = CompressionDictionary.get(properties.getCompressionDictionary());
+        this.compressionLevel = properties.getCompressionLevel();
+    }
+
+    public static void main(String[] args) throws IOException {
+        File dataDir = new File(System.getProperty("user.home"), ".hearthgames");
+        int threads = Runtime.getRuntime().availableProcessors();
+        long chunkSize = 16L * 1024 * 1024;
+        int recordedGamesCapacity = 4096;
+        ApplicationProperties properties = new ApplicationProperties();
+        List<File> files = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--data-dir=")) {
+                dataDir = new File(value(arg));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(value(arg));
+            } else if (arg.startsWith("--chunk-size-mb=")) {
+                chunkSize = Long.parseLong(value(arg)) * 1024 * 1024;
+            } else if (arg.startsWith("--recorded-games-capacity=")) {
+                recordedGamesCapacity = Integer.parseInt(value(arg));
+            } else if (arg.startsWith("--logger-profile=")) {
+                properties.setLoggerProfile(value(arg));
+            } else if (arg.startsWith("--compression-level=")) {
+                properties.setCompressionLevel(Integer.parseInt(value(arg)));
+            } else if (arg.startsWith("--compression-dictionary=")) {
+                properties.setCompressionDictionary(Integer.parseInt(value(arg)));
+            } else {
+                files.addAll(logFiles(new File(arg)));
+            }
+        }
+        if (files.isEmpty()) {
+            logger.error("No log files to import.");
+            return;
+        }
+        GameSpool spool = new GameSpool(new File(dataDir, "spool"));
+        RecordedGamesIndex recordedGames = new RecordedGamesIndex(new File(dataDir, "recorded-games.idx"), recordedGamesCapacity);
+        try (LogImporter importer = new LogImporter(spool, recordedGames, properties, threads, chunkSize)) {
+            int imported = 0;
+            for (File file : files) {
+                imported += importFile(importer, file);
+            }
+            logger.info("Imported " + imported + " games from " + files.size() + " files, they'll be uploaded the next time the client starts.");
+        } finally {
+            recordedGames.flush();
+            spool.close();
+        }
+    }
+
+    private static int importFile(LogImporter importer, File file) {
+        try {
+            return importer.importFile(file).getImported();
+        } catch (IOException e) {
+            logger.error("Error importing " + file + " : " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Finds the games in the file and saves the ones that haven't been recorded yet to the spool.
+     */
+    public ImportResult importFile(File file) throws IOException {
+        long started = System.nanoTime();
+        ImportResult result = new ImportResult();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            result.bytes = size;
+            if (size == 0) return result;
+            int chunks = (int) ((size + chunkSize - 1) / chunkSize);
+            List<GameSpan> spans = invoke(new ChunkScanTask(channel, size, chunkSize, 0, chunks)).spans();
+            result.games = spans.size();
+
+            int batchSize = pool.getParallelism() * GAMES_PER_THREAD;
+            for (int next = 0; next < spans.size(); next += batchSize) {
+                List<Callable<GameData>> batch = new ArrayList<>();
+                for (GameSpan span : spans.subList(next, Math.min(spans.size(), next + batchSize))) {
+                    if (span.getLength() > Integer.MAX_VALUE) {
+                        logger.warn("Skipping a game of " + span.getLength() + " bytes in " + file);
+                        continue;
+                    }
+                    batch.add(new SpanRecorder(channel, span, profile, dictionary, compressionLevel, file.lastModified()));
+                }
+                save(pool.invokeAll(batch), result);
+            }
+        }
+        result.millis = (System.nanoTime() - started) / 1000000;
+        logger.info("Imported " + result.imported + " of the " + result.games + " games in " + file + " ("
+                + result.duplicates + " already recorded) in " + result.millis + " ms, "
+                + (result.millis == 0 ? 0 : result.bytes / 1000 / result.millis) + " MB/s");
+        return result;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private GameMarkers invoke(ChunkScanTask task) throws IOException {
+        try {
+            return pool.invoke(task);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void save(List<Future<GameData>> recorded, ImportResult result) throws IOException {
+        List<GameData> games = new ArrayList<>(recorded.size());
+        for (Future<GameData> future : recorded) {
+            GameData gameData = get(future);
+            if (recordedGames.add(gameData.getHash())) {
+                games.add(gameData);
+            } else {
+                result.duplicates++;
+            }
+        }
+        spool.appendAll(games);
+        result.imported += games.size();
+    }
+
+    private static GameData get(Future<GameData> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import was interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static List<File> logFiles(File file) {
+        if (file.isFile()) return Arrays.asList(file);
+        if (!file.isDirectory()) {
+            logger.warn("Can't find " + file);
+            return new ArrayList<>();
+        }
+        File[] files = file.listFiles((directory, name) -> name.endsWith(".txt") || name.endsWith(".log"));
+        if (files == null) return new ArrayList<>();
+        Arrays.sort(files);
+        return Arrays.asList(files);
+    }
+
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+
+    /**
+     * What an import found in a file.
+     */
+    public static class ImportResult {
+        private long bytes;
+        private int games;
+        private int imported;
+        private int duplicates;
+        private long millis;
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public int getGames() {
+            return games;
+        }
+
+        public int getImported() {
+            return imported;
+        }
+
+        public int getDuplicates() {
+            return duplicates;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.hearthgames.client.importer;
+
+import com.hearthgames.client.compression.CompressionDictionary;
+import com.hearthgames.client.log.ContentHash;
+import com.hearthgames.client.log.GameCompressor;
+import com.hearthgames.client.log.GameData;
+import com.hearthgames.client.log.GameLogger;
+import com.hearthgames.client.log.GameTypeDetector;
+import com.hearthgames.client.log.LoggerProfile;
+
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Callable;
+
+/**
+ * Records the game in one {@link GameSpan} the way the recorder would have as it tailed the log: the lines of the
+ * loggers in the profile, compressed, with the game type worked out from the lines around the game.  The compressed
+ * game is byte for byte the one the recorder makes, so a game that was already recorded live has the same hash.
+ *
+ * The log has no clock times, the start and end time are both the time the file was last written.
+ */
+class SpanRecorder implements Callable<GameData> {
+
+    private final FileChannel channel;
+    private final GameSpan span;
+    private final LoggerProfile profile;
+    private final CompressionDictionary dictionary;
+    private final int level;
+    private final long time;
+
+    SpanRecorder(FileChannel channel, GameSpan span, LoggerProfile profile, CompressionDictionary dictionary, int level,
+                 long time) {
+        this.channel = channel;
+        this.span = span;
+        this.profile = profile;
+        this.dictionary = dictionary;
+        this.level = level;
+        this.time = time;
+    }
+
+    @Override
+    public GameData call() throws Exception {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, span.getStart(), span.getLength());
+        GameCompressor compressor = new GameCompressor(dictionary, level);
+        GameTypeDetector gameTypeDetector = new GameTypeDetector();
+        ByteLine line = new ByteLine();
+        long[] creates = span.getCreates();
+        int nextCreate = 0;
+        try {
+            int limit = buffer.limit();
+            int pos = 0;
+            while (pos < limit) {
+                int lineEnd = pos;
+                while (lineEnd < limit && buffer.get(lineEnd) != '\n') lineEnd++;
+                if (buffer.get(pos) == '[') {
+                    line.set(buffer, pos, lineEnd);
+                    GameLogger gameLogger = GameLogger.classify(line);
+                    if (gameLogger != null && profile.includes(gameLogger)) {
+                        write(compressor, line);
+                        if (gameLogger != GameLogger.Power) {
+                            gameTypeDetector.handle(gameLogger, line.toString());
+                        } else if (nextCreate < creates.length && creates[nextCreate] == span.getStart() + pos) {
+                            nextCreate++;
+                            gameTypeDetector.gameStarted();
+                        }
+                    }
+                }
+                pos = lineEnd + 1;
+            }
+            byte[] data = compressor.finish();
+            GameData gameData = new GameData();
+            gameData.setData(data);
+            gameData.setDictionaryId(compressor.getDictionaryId());
+            gameData.setHash(ContentHash.of(data));
+            gameData.setStartTime(time);
+            gameData.setEndTime(time);
+            gameData.setGameType(gameTypeDetector.getGameType().getId());
+            gameData.setRank(gameTypeDetector.getRank());
+            return gameData;
+        } finally {
+            compressor.close();
+        }
+    }
+
+    // Anything that isn't ASCII goes through a String so broken UTF-8 is replaced exactly as the tailer replaces it
+    private static void write(GameCompressor compressor, ByteLine line) {
+        if (line.isAscii()) {
+            compressor.write(line.bytes(), 0, line.length());
+        } else {
+            compressor.write(line.toString());
+        }
+    }
+}
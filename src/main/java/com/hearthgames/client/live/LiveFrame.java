@@ -0,0 +1,105 @@
+package com.hearthgames.client.live;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A batch of Power log lines from a game in progress.  Frames of a stream are numbered from 0 and compressed with one
+ * deflate context shared across the whole stream, so each frame has to be inflated in order on the server.
+ *
+ * header length (4 bytes, counting the bytes after it up to the data)
+ * stream id (8), sequence (8), flags (4), time the first line was read (8), line count (4), data length (4)
+ * data
+ */
+public class LiveFrame {
+
+    public static final String CONTENT_TYPE = "application/x-hearthgames-live";
+
+    /** The first frame of a stream, the server starts a new inflater. */
+    public static final int START = 1;
+    /** The last frame of a stream, the game is over. */
+    public static final int END = 2;
+
+    private static final int HEADER_LENGTH = 36;
+
+    private final long streamId;
+    private final long sequence;
+    private final int flags;
+    private final long firstLineTime;
+    private final int lineCount;
+    private final byte[] data;
+
+    public LiveFrame(long streamId, long sequence, int flags, long firstLineTime, int lineCount, byte[] data) {
+        this.streamId = streamId;
+        this.sequence = sequence;
+        this.flags = flags;
+        this.firstLineTime = firstLineTime;
+        this.lineCount = lineCount;
+        this.data = data;
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + HEADER_LENGTH + data.length);
+        buffer.putInt(HEADER_LENGTH);
+        buffer.putLong(streamId);
+        buffer.putLong(sequence);
+        buffer.putInt(flags);
+        buffer.putLong(firstLineTime);
+        buffer.putInt(lineCount);
+        buffer.putInt(data.length);
+        buffer.put(data);
+        return buffer.array();
+    }
+
+    public static LiveFrame read(DataInputStream in) throws IOException {
+        int headerLength = in.readInt();
+        if (headerLength < HEADER_LENGTH) {
+            throw new IOException("Invalid frame header length : " + headerLength);
+        }
+        long streamId = in.readLong();
+        long sequence = in.readLong();
+        int flags = in.readInt();
+        long firstLineTime = in.readLong();
+        int lineCount = in.readInt();
+        int length = in.readInt();
+        if (headerLength > HEADER_LENGTH) {
+            in.readFully(new byte[headerLength - HEADER_LENGTH]);
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        return new LiveFrame(streamId, sequence, flags, firstLineTime, lineCount, data);
+    }
+
+    public long getStreamId() {
+        return streamId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getFlags() {
+        return flags;
+    }
+
+    public boolean isStart() {
+        return (flags & START) != 0;
+    }
+
+    public boolean isEnd() {
+        return (flags & END) != 0;
+    }
+
+    public long getFirstLineTime() {
+        return firstLineTime;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+}
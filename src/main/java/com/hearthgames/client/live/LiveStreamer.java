@@ -0,0 +1,328 @@
+package com.hearthgames.client.live;
+
+import com.hearthgames.client.config.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Streams the Power log of the game in progress to the server so it can be watched live, instead of waiting for the
+ * game to end.
+ *
+ * Each recorder hands over Power lines as they're read through its own {@link Feed}, they're batched and sent as a {@link LiveFrame} every
+ * live-flush-millis or live-max-lines lines, whichever comes first.  Each game is its own stream with a deflate
+ * context shared across its frames.  Frames are kept until the server acknowledges them, after a failed request the
+ * stream resumes from the first frame the server hasn't acknowledged.  Everything except batching the lines happens
+ * on the live stream thread so the tailer never waits on the network.
+ */
+@Component
+public class LiveStreamer {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveStreamer.class);
+
+    private static final long MAX_BACKOFF = 30000;
+
+    private final RestTemplate restTemplate;
+    private final boolean enabled;
+    private final String url;
+    private final long flushMillis;
+    private final int maxLines;
+    private final int maxUnackedFrames;
+    private final ScheduledExecutorService sender;
+
+    // guarded by lock, written by the tailer thread
+    private final Object lock = new Object();
+    private final List<Batch> ready = new ArrayList<>();
+    private final List<Feed> feeds = new ArrayList<>();
+
+    // only used by the sender thread
+    private final Deque<Stream> streams = new ArrayDeque<>();
+    private long backoff;
+    private long retryAt;
+
+    @Autowired
+    public LiveStreamer(RestTemplate restTemplate, ApplicationProperties properties) {
+        this.restTemplate = restTemplate;
+        this.enabled = properties.isLiveEnabled();
+        this.url = properties.getLiveUrl();
+        this.flushMillis = properties.getLiveFlushMillis();
+        this.maxLines = properties.getLiveMaxLines();
+        this.maxUnackedFrames = properties.getLiveMaxUnackedFrames();
+        if (enabled) {
+            sender = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "live-stream");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sender.scheduleWithFixedDelay(this::flush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        } else {
+            sender = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return a feed for the games of one log, games from different feeds are streamed side by side
+     */
+    public Feed newFeed() {
+        Feed feed = new Feed();
+        if (enabled) {
+            synchronized (lock) {
+                feeds.add(feed);
+            }
+        }
+        return feed;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (sender != null) {
+            sender.shutdownNow();
+        }
+    }
+
+    private void flush() {
+        List<Batch> batches;
+        synchronized (lock) {
+            for (Feed feed : feeds) {
+                if (feed.current != null && feed.batchLines > 0) {
+                    ready.add(feed.take(0));
+                }
+            }
+            if (ready.isEmpty() && streams.isEmpty()) return;
+            batches = new ArrayList<>(ready);
+            ready.clear();
+        }
+        for (Batch next : batches) {
+            Stream stream = next.stream;
+            if (stream.abandoned) continue;
+            stream.compress(next);
+            if (!stream.queued) {
+                stream.queued = true;
+                streams.add(stream);
+            }
+            if (stream.unacked.size() > maxUnackedFrames) {
+                logger.warn("Live stream fell too far behind the game, it will resume with the next game.");
+                streams.remove(stream);
+                abandon(stream, false);
+            }
+        }
+        send();
+    }
+
+    private void send() {
+        if (System.currentTimeMillis() < retryAt) return;
+        Iterator<Stream> iterator = streams.iterator();
+        while (iterator.hasNext()) {
+            Stream stream = iterator.next();
+            for (LiveFrame frame : new ArrayList<>(stream.unacked)) {
+                LiveFrameResponse response;
+                try {
+                    response = post(frame);
+                } catch (RestClientException e) {
+                    backoff = Math.min(Math.max(backoff * 2, flushMillis), MAX_BACKOFF);
+                    retryAt = System.currentTimeMillis() + backoff;
+                    logger.debug("Live frame failed, retrying in " + backoff + " ms : " + e.getMessage());
+                    return;
+                }
+                backoff = 0;
+                if (response.isReset()) {
+                    logger.info("The server lost the live stream, starting a new one.");
+                    iterator.remove();
+                    abandon(stream, true);
+                    break;
+                }
+                stream.acknowledge(response.getAcked());
+                if (response.getAcked() < frame.getSequence()) {
+                    break; // the server missed an earlier frame, resend from there next time
+                }
+            }
+            if (stream.ended && stream.unacked.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private LiveFrameResponse post(LiveFrame frame) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("User-Agent", "HearthGamesClient");
+        headers.setContentType(MediaType.parseMediaType(LiveFrame.CONTENT_TYPE));
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+        return restTemplate.postForObject(url, new HttpEntity<>(frame.toBytes(), headers), LiveFrameResponse.class);
+    }
+
+    // If the game is still going and the server asked for it, carry on in a new stream.
+    private void abandon(Stream stream, boolean restart) {
+        stream.abandoned = true;
+        stream.unacked.clear();
+        stream.deflater.end();
+        if (restart) {
+            synchronized (lock) {
+                for (Feed feed : feeds) {
+                    if (feed.current == stream) {
+                        feed.current = new Stream();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The lines of one log's games, batched on the tailer thread.
+     */
+    public class Feed {
+        private final ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        private int batchLines;
+        private long batchFirstLineTime;
+        private Stream current;
+
+        /**
+         * Starts a new stream, ending the previous one if the game never completed.
+         */
+        public void startGame() {
+            if (!enabled) return;
+            synchronized (lock) {
+                if (current != null) {
+                    ready.add(take(LiveFrame.END));
+                }
+                current = new Stream();
+            }
+        }
+
+        public void append(String line) {
+            if (!enabled) return;
+            synchronized (lock) {
+                if (current == null) return;
+                if (batchLines == 0) {
+                    batchFirstLineTime = System.currentTimeMillis();
+                }
+                byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+                batch.write(bytes, 0, bytes.length);
+                batch.write('\n');
+                if (++batchLines >= maxLines) {
+                    ready.add(take(0));
+                    sender.execute(LiveStreamer.this::flush);
+                }
+            }
+        }
+
+        public void endGame() {
+            if (!enabled) return;
+            synchronized (lock) {
+                if (current == null) return;
+                ready.add(take(LiveFrame.END));
+                current = null;
+            }
+            sender.execute(LiveStreamer.this::flush);
+        }
+
+        private Batch take(int flags) {
+            Batch taken = new Batch(current, batch.toByteArray(), batchLines, batchFirstLineTime, flags);
+            batch.reset();
+            batchLines = 0;
+            return taken;
+        }
+    }
+
+    private static class Batch {
+        private final Stream stream;
+        private final byte[] lines;
+        private final int lineCount;
+        private final long firstLineTime;
+        private final int flags;
+
+        Batch(Stream stream, byte[] lines, int lineCount, long firstLineTime, int flags) {
+            this.stream = stream;
+            this.lines = lines;
+            this.lineCount = lineCount;
+            this.firstLineTime = firstLineTime;
+            this.flags = flags;
+        }
+    }
+
+    private static class Stream {
+        private final long id = ThreadLocalRandom.current().nextLong();
+        private final Deflater deflater = new Deflater();
+        private final Deque<LiveFrame> unacked = new ArrayDeque<>();
+        private final byte[] chunk = new byte[8192];
+        private long nextSequence;
+        private boolean queued;
+        private boolean ended;
+        private boolean abandoned;
+
+        void compress(Batch batch) {
+            int flags = batch.flags | (nextSequence == 0 ? LiveFrame.START : 0);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(batch.lines.length / 4 + 64);
+            deflater.setInput(batch.lines);
+            if ((flags & LiveFrame.END) != 0) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    out.write(chunk, 0, deflater.deflate(chunk));
+                }
+                deflater.end();
+                ended = true;
+            } else {
+                // a sync flush makes everything so far decodable without ending the shared context
+                int count;
+                do {
+                    count = deflater.deflate(chunk, 0, chunk.length, Deflater.SYNC_FLUSH);
+                    out.write(chunk, 0, count);
+                } while (count == chunk.length);
+            }
+            unacked.add(new LiveFrame(id, nextSequence++, flags, batch.firstLineTime, batch.lineCount, out.toByteArray()));
+        }
+
+        void acknowledge(long acked) {
+            while (!unacked.isEmpty() && unacked.peekFirst().getSequence() <= acked) {
+                unacked.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * The server's answer to a frame: the highest sequence it has processed in order, or reset if it doesn't know the
+     * stream any more.
+     */
+    public static class LiveFrameResponse implements Serializable {
+        private static final long serialVersionUID = 1;
+
+        private long acked = -1;
+        private boolean reset;
+
+        public long getAcked() {
+            return acked;
+        }
+
+        public void setAcked(long acked) {
+            this.acked = acked;
+        }
+
+        public boolean isReset() {
+            return reset;
+        }
+
+        public void setReset(boolean reset) {
+            this.reset = reset;
+        }
+    }
+}
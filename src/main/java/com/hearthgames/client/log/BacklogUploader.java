@@ -0,0 +1,135 @@
+package com.hearthgames.client.log;
+
+import com.hearthgames.client.archive.GameArchive;
+import com.hearthgames.client.background.BackgroundScheduler;
+import com.hearthgames.client.background.BackgroundTask;
+import com.hearthgames.client.config.ApplicationProperties;
+import com.hearthgames.client.spool.GameSpool;
+import com.hearthgames.client.spool.SpoolEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Uploads the games saved in the {@link GameSpool} in batches.  Each game the server accepts (or rejects for good) is
+ * acknowledged on its own, the rest stay in the spool for the next attempt.
+ *
+ * It's run by the {@link BackgroundScheduler}, a batch per slice, so the backlog only uploads between games and within
+ * the background bandwidth budget.
+ */
+@Component
+@Lazy
+public class BacklogUploader implements BackgroundTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(BacklogUploader.class);
+
+    private final GameSpool spool;
+    private final GameUploader uploader;
+    private final GameArchive archive;
+    private final BackgroundScheduler scheduler;
+    private final int maxGames;
+    private final long maxBytes;
+    private List<SpoolEntry> pending;
+    private int next;
+
+    @Autowired
+    public BacklogUploader(GameSpool spool, GameUploader uploader, GameArchive archive, BackgroundScheduler scheduler,
+                           ApplicationProperties properties) {
+        this.spool = spool;
+        this.uploader = uploader;
+        this.archive = archive;
+        this.scheduler = scheduler;
+        this.maxGames = properties.getUploadBatchMaxGames();
+        this.maxBytes = properties.getUploadBatchMaxBytes();
+    }
+
+    /**
+     * Uploads the next batch of the games that were pending when the first batch went.  Once they've all been tried,
+     * or the server can't be reached, the rest wait for the next restart of the client.
+     *
+     * @return true while there are games left to try
+     */
+    @Override
+    public boolean runSlice() {
+        if (pending == null) {
+            pending = spool.pending();
+        }
+        if (next >= pending.size()) return false;
+        List<SpoolEntry> entries = new ArrayList<>();
+        List<GamePayload> games = new ArrayList<>();
+        long bytes = 0;
+        int end = next;
+        while (end < pending.size() && games.size() < maxGames) {
+            SpoolEntry entry = pending.get(end);
+            if (!games.isEmpty() && bytes + entry.getLength() > maxBytes) break;
+            end++;
+            if (verify(entry)) {
+                entries.add(entry);
+                games.add(spool.payload(entry));
+                bytes += entry.getLength();
+            }
+        }
+        if (games.isEmpty()) {
+            next = end;
+            return next < pending.size();
+        }
+        try {
+            scheduler.awaitBandwidth(bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        next = end;
+
+        List<GameUploader.UploadResult> results = uploader.uploadBatch(games);
+        int retries = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            if (results.get(i) == GameUploader.UploadResult.RETRY) {
+                retries++;
+            } else {
+                if (results.get(i) == GameUploader.UploadResult.RECORDED) {
+                    archive(games.get(i));
+                }
+                acknowledge(entries.get(i));
+            }
+        }
+        if (retries == entries.size()) {
+            logger.info("Will try to upload the remaining " + spool.size() + " games on the next restart of the client.");
+            next = pending.size();
+        }
+        return next < pending.size();
+    }
+
+    // a game that fails its CRC is dropped from the spool by the check
+    private boolean verify(SpoolEntry entry) {
+        try {
+            return spool.verify(entry);
+        } catch (IOException e) {
+            logger.error("Failed to read locally saved game : " + e.getMessage());
+            return false;
+        }
+    }
+
+    // before the acknowledge, which may delete the spool segment the game is read from
+    private void archive(GamePayload game) {
+        try {
+            archive.add(game);
+        } catch (IOException e) {
+            logger.warn("Failed to archive game : " + e.getMessage());
+        }
+    }
+
+    private void acknowledge(SpoolEntry entry) {
+        try {
+            spool.acknowledge(entry);
+        } catch (IOException e) {
+            logger.error("Failed to remove locally saved game : " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.hearthgames.client.log;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A compact alternative to posting a game as JSON, which base64 encodes the already compressed data.  A game is sent
+ * as a header followed by the raw deflate stream:
+ *
+ * header length (4 bytes, counting the bytes after it up to the data)
+ * version (4), game type (4), start time (8), end time (8), content hash (8), data length (4), rank (4),
+ * compression dictionary (4)
+ * data
+ *
+ * All numbers are big endian.  Readers skip header fields they don't know about, so fields can be added to the end of
+ * the header without breaking older servers.  A batch is just several games back to back.
+ */
+public final class BinaryGameFormat {
+
+    public static final String CONTENT_TYPE = "application/x-hearthgames-game";
+    public static final String BATCH_CONTENT_TYPE = "application/x-hearthgames-games";
+
+    static final int HEADER_LENGTH = 44;
+    // headers written before the rank and dictionary were added
+    private static final int MIN_HEADER_LENGTH = 36;
+    private static final int RANK_HEADER_LENGTH = 40;
+
+    private BinaryGameFormat() {
+    }
+
+    public static int size(GamePayload game) {
+        return 4 + HEADER_LENGTH + game.getLength();
+    }
+
+    public static void writeHeader(ByteBuffer buffer, GamePayload game, int version) {
+        buffer.putInt(HEADER_LENGTH);
+        buffer.putInt(version);
+        buffer.putInt(game.getGameType());
+        buffer.putLong(game.getStartTime());
+        buffer.putLong(game.getEndTime());
+        buffer.putLong(game.getHash());
+        buffer.putInt(game.getLength());
+        buffer.putInt(game.getRank());
+        buffer.putInt(game.getDictionaryId());
+    }
+
+    /**
+     * Reads the next game from the stream.
+     *
+     * @return the game or null at the end of the stream
+     */
+    public static GameUploader.RecordGameRequest read(DataInputStream in) throws IOException {
+        int headerLength;
+        try {
+            headerLength = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (headerLength < MIN_HEADER_LENGTH) {
+            throw new IOException("Invalid game header length : " + headerLength);
+        }
+        GameUploader.RecordGameRequest request = new GameUploader.RecordGameRequest();
+        request.setVersion(in.readInt());
+        request.setGameType(in.readInt());
+        request.setStartTime(in.readLong());
+        request.setEndTime(in.readLong());
+        in.readLong(); // hash
+        int length = in.readInt();
+        int consumed = MIN_HEADER_LENGTH;
+        if (headerLength >= RANK_HEADER_LENGTH) {
+            request.setRank(in.readInt());
+            consumed = RANK_HEADER_LENGTH;
+        }
+        if (headerLength >= HEADER_LENGTH) {
+            request.setDictionaryId(in.readInt());
+            consumed = HEADER_LENGTH;
+        }
+        // fields this version doesn't know, whatever their size
+        skipFully(in, headerLength - consumed);
+        byte[] data = new byte[length];
+        in.readFully(data);
+        request.setData(data);
+        return request;
+    }
+
+    private static void skipFully(DataInputStream in, int count) throws IOException {
+        while (count > 0) {
+            int skipped = in.skipBytes(count);
+            if (skipped == 0) {
+                in.readByte(); // throws at the end of the stream
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.hearthgames.client.log;
+
+/**
+ * A fast 64 bit hash of a compressed game, used to tell games apart without keeping their data around.  This is not a
+ * cryptographic digest, it only needs to make accidental collisions between a few thousand games vanishingly unlikely.
+ */
+public final class ContentHash {
+
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+
+    private ContentHash() {
+    }
+
+    /**
+     * @return the hash of the data, never 0 so 0 can be used to mark an empty slot
+     */
+    public static long of(byte[] data) {
+        return of(data, 0, data.length);
+    }
+
+    public static long of(byte[] data, int offset, int length) {
+        long hash = PRIME_3 + length;
+        int i = offset;
+        int end = offset + length;
+        for (; i + 8 <= end; i += 8) {
+            hash ^= mix(readLong(data, i));
+            hash = Long.rotateLeft(hash, 27) * PRIME_1 + PRIME_2;
+        }
+        for (; i < end; i++) {
+            hash ^= (data[i] & 0xFFL) * PRIME_3;
+            hash = Long.rotateLeft(hash, 11) * PRIME_1;
+        }
+        hash ^= hash >>> 33;
+        hash *= PRIME_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME_3;
+        hash ^= hash >>> 32;
+        return hash == 0 ? PRIME_1 : hash;
+    }
+
+    private static long mix(long value) {
+        return Long.rotateLeft(value * PRIME_2, 31) * PRIME_1;
+    }
+
+    private static long readLong(byte[] data, int i) {
+        return (data[i] & 0xFFL)
+                | (data[i + 1] & 0xFFL) << 8
+                | (data[i + 2] & 0xFFL) << 16
+                | (data[i + 3] & 0xFFL) << 24
+                | (data[i + 4] & 0xFFL) << 32
+                | (data[i + 5] & 0xFFL) << 40
+                | (data[i + 6] & 0xFFL) << 48
+                | (data[i + 7] & 0xFFL) << 56;
+    }
+}
@@ -0,0 +1,268 @@
+package com.hearthgames.client.log;
+
+import com.hearthgames.client.compression.CompressionDictionary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses a game one line at a time as it's read from the log, so the raw game is never held in memory.  Only the
+ * compressed output is buffered.  The result is the same zlib stream a DeflaterOutputStream would produce for the
+ * whole game text, with every line terminated by a '\n'.
+ *
+ * With a {@link CompressionDictionary} the stream is preset with it, and the zlib header says which dictionary (by
+ * its Adler-32) is needed to inflate it.
+ *
+ * At most memoryLimit compressed bytes are held in memory, a longer game is spilled to a temp file as it grows so a
+ * game that never ends doesn't fill the heap.  It's only read back when the game is finished.  Spill files are deleted
+ * with their game, {@link #deleteLeftoverSpills()} deletes the ones a killed client left in the temp directory.
+ *
+ * A compressor is reused for every game, call {@link #reset()} to start the next one.
+ */
+public class GameCompressor {
+
+    private static final Logger logger = LoggerFactory.getLogger(GameCompressor.class);
+
+    private static final String SPILL_PREFIX = "hearthgames-game";
+    private static final String SPILL_SUFFIX = ".spill";
+    // an idle game is closed long before this, a spill file that old has no game writing it
+    private static final long LEFTOVER_SPILL_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private final Deflater deflater;
+    private final CompressionDictionary dictionary;
+    private final int memoryLimit;
+    private final Buffer compressed = new Buffer();
+    private final byte[] chunk = new byte[8192];
+    private byte[] encoded = new byte[1024];
+    private long rawLength;
+    private File spillFile;
+    private OutputStream spill;
+    private long spilledLength;
+    private boolean spillFailed;
+
+    public GameCompressor() {
+        this(null, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param dictionary the dictionary to preset, may be null
+     * @param level the deflate level, 1 to 9 or {@link Deflater#DEFAULT_COMPRESSION}
+     */
+    public GameCompressor(CompressionDictionary dictionary, int level) {
+        this(dictionary, level, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param dictionary the dictionary to preset, may be null
+     * @param level the deflate level, 1 to 9 or {@link Deflater#DEFAULT_COMPRESSION}
+     * @param memoryLimit the compressed bytes to hold in memory before spilling to a temp file
+     */
+    public GameCompressor(CompressionDictionary dictionary, int level, int memoryLimit) {
+        this.deflater = new Deflater(level);
+        this.dictionary = dictionary;
+        this.memoryLimit = memoryLimit;
+        if (dictionary != null) {
+            dictionary.apply(deflater);
+        }
+    }
+
+    /**
+     * Encodes the line as UTF-8 and feeds it to the deflater followed by a line feed.
+     */
+    public void write(CharSequence line) {
+        deflate(encode(line));
+    }
+
+    /**
+     * Feeds a line that is already UTF-8 encoded to the deflater followed by a line feed.
+     */
+    public void write(byte[] line, int offset, int length) {
+        ensureCapacity(length + 1);
+        System.arraycopy(line, offset, encoded, 0, length);
+        deflate(length);
+    }
+
+    /**
+     * Finishes the deflate stream.
+     *
+     * @return the compressed game
+     */
+    public byte[] finish() {
+        deflater.finish();
+        while (!deflater.finished()) {
+            drain(Deflater.NO_FLUSH);
+        }
+        if (spill == null) {
+            return compressed.toByteArray();
+        }
+        try {
+            spill.close();
+            spill = null;
+            byte[] game = new byte[Math.toIntExact(spilledLength + compressed.size())];
+            try (InputStream in = new FileInputStream(spillFile)) {
+                new DataInputStream(in).readFully(game, 0, (int) spilledLength);
+            }
+            compressed.copyTo(game, (int) spilledLength);
+            return game;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read back " + spillFile, e);
+        } finally {
+            deleteSpill();
+        }
+    }
+
+    public void reset() {
+        deflater.reset();
+        if (dictionary != null) {
+            dictionary.apply(deflater);
+        }
+        compressed.reset();
+        rawLength = 0;
+        deleteSpill();
+        spilledLength = 0;
+        spillFailed = false;
+    }
+
+    /**
+     * @return the id of the dictionary the games are compressed with, {@link CompressionDictionary#NONE} without one
+     */
+    public int getDictionaryId() {
+        return dictionary == null ? CompressionDictionary.NONE : dictionary.getId();
+    }
+
+    public long getRawLength() {
+        return rawLength;
+    }
+
+    public long getCompressedLength() {
+        return spilledLength + compressed.size();
+    }
+
+    /**
+     * @return true if the game has passed the memory limit and is being written to a temp file
+     */
+    public boolean isSpilled() {
+        return spill != null;
+    }
+
+    public void close() {
+        deflater.end();
+        deleteSpill();
+    }
+
+    /**
+     * Deletes the spill files of games that were being recorded when a client or import was killed.  Files written in
+     * the last day are left alone, they may belong to a game another one is still recording.
+     */
+    public static void deleteLeftoverSpills() {
+        File[] files = new File(System.getProperty("java.io.tmpdir")).listFiles((directory, name) -> name.startsWith(SPILL_PREFIX) && name.endsWith(SPILL_SUFFIX));
+        if (files == null) return;
+        long writtenBefore = System.currentTimeMillis() - LEFTOVER_SPILL_MILLIS;
+        int deleted = 0;
+        for (File file : files) {
+            if (file.lastModified() < writtenBefore && file.delete()) {
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            logger.info("Deleted " + deleted + " spilled games left by an earlier run");
+        }
+    }
+
+    private void deflate(int length) {
+        encoded[length++] = '\n';
+        rawLength += length;
+        deflater.setInput(encoded, 0, length);
+        while (!deflater.needsInput()) {
+            drain(Deflater.NO_FLUSH);
+        }
+    }
+
+    private void drain(int flush) {
+        int count = deflater.deflate(chunk, 0, chunk.length, flush);
+        compressed.write(chunk, 0, count);
+        if (compressed.size() >= memoryLimit && !spillFailed) {
+            spill();
+        }
+    }
+
+    private void spill() {
+        try {
+            if (spill == null) {
+                spillFile = File.createTempFile(SPILL_PREFIX, SPILL_SUFFIX);
+                spill = new BufferedOutputStream(new FileOutputStream(spillFile));
+                logger.debug("Game passed " + memoryLimit + " compressed bytes, spilling it to " + spillFile);
+            }
+            compressed.writeTo(spill);
+            spilledLength += compressed.size();
+            compressed.reset();
+        } catch (IOException e) {
+            // keep the rest of this game in memory, the recorder still discards it once it passes the max size
+            logger.warn("Unable to spill game to a temp file : " + e.getMessage());
+            spillFailed = true;
+        }
+    }
+
+    private void deleteSpill() {
+        if (spillFile == null) return;
+        if (spill != null) {
+            try {
+                spill.close();
+            } catch (IOException e) {
+                // deleted next anyway
+            }
+            spill = null;
+        }
+        try {
+            Files.deleteIfExists(spillFile.toPath());
+        } catch (IOException e) {
+            logger.warn("Unable to delete " + spillFile + " : " + e.getMessage());
+        }
+        spillFile = null;
+    }
+
+    // Lines are almost always ASCII, encode by hand into the reusable buffer rather than allocating with getBytes().
+    private int encode(CharSequence line) {
+        int length = line.length();
+        ensureCapacity(length * 3 + 1);
+        byte[] out = encoded;
+        int pos = 0;
+        for (int i = 0; i < length; i++) {
+            char c = line.charAt(i);
+            if (c < 0x80) {
+                out[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                out[pos++] = (byte) (0xC0 | (c >> 6));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(line.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, line.charAt(++i));
+                out[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                out[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                out[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                out[pos++] = '?';
+            } else {
+                out[pos++] = (byte) (0xE0 | (c >> 12));
+                out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (encoded.length < capacity) {
+            encoded = new byte[Math.max(encoded.length * 2, capacity)];
+        }
+    }
+
+    private static class Buffer extends ByteArrayOutputStream {
+        void copyTo(byte[] destination, int offset) {
+            System.arraycopy(buf, 0, destination, offset, count);
+        }
+    }
+}
@@ -1,14 +1,22 @@
 package com.hearthgames.client.log;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 /**
  * Stores game data such as the log file (compressed), game type (ARENA, CASUAL, etc...) and the start and end time of the game.
  */
-public class GameData {
+public class GameData implements GamePayload {
 
     private byte[] data;
     private int gameType;
+    private int rank;
+    private int dictionaryId;
     private long startTime;
     private long endTime;
+    private long hash;
 
     public byte[] getData() {
         return data;
@@ -26,6 +34,22 @@ public class GameData {
         this.gameType = gameType;
     }
 
+    public int getRank() {
+        return rank;
+    }
+
+    public void setRank(int rank) {
+        this.rank = rank;
+    }
+
+    public int getDictionaryId() {
+        return dictionaryId;
+    }
+
+    public void setDictionaryId(int dictionaryId) {
+        this.dictionaryId = dictionaryId;
+    }
+
     public long getStartTime() {
         return startTime;
     }
@@ -41,4 +65,27 @@ public class GameData {
     public void setEndTime(long endTime) {
         this.endTime = endTime;
     }
+
+    public long getHash() {
+        return hash;
+    }
+
+    public void setHash(long hash) {
+        this.hash = hash;
+    }
+
+    @Override
+    public int getLength() {
+        return data.length;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(data);
+    }
+
+    @Override
+    public InputStream openStream() {
+        return new ByteArrayInputStream(data);
+    }
 }
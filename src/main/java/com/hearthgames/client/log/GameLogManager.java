@@ -1,95 +1,254 @@
 package com.hearthgames.client.log;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.input.Tailer;
+import com.hearthgames.client.background.BackgroundScheduler;
+import com.hearthgames.client.config.ApplicationProperties;
+import com.hearthgames.client.metrics.Counter;
+import com.hearthgames.client.metrics.MetricsRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Collection;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
 
 /**
  * The Game Log Manager orchestrates the reading and recording of log files.
  *
- * At application start up it looks for log files that have been saved locally (logs that failed to upload because the server was offline).
+ * At application start up it configures Hearthstone's log.config, starts tailing the log and then hands the upload of the games that have been saved locally in the spool (games that failed to upload because the server was offline) to the {@link BackgroundScheduler}, which runs it between games.
+ * It's started by Spring once every bean is ready, with or without the window.
  *
+ * The tailer opens the log where its checkpoint says the last run stopped, or at its end the first time, so it starts first and nothing it needs waits on the spool or the server.
+ *
+ * Every install in application.log-sources, or the one found in the default location, gets its own {@link GameRecorder}.  Their logs are all polled from one thread into one buffer and their games share the upload pipeline, so another install only costs its recorder.
+ * The same thread runs the recorders' idle checks.
  */
 @Component
-public class GameLogManager {
+public class GameLogManager implements SmartLifecycle {
 
     private static final Logger logger = LoggerFactory.getLogger(GameLogManager.class);
 
-    private GameRecorder gameRecorder;
+    private static final long MAX_IDLE_CHECK_MILLIS = 60000;
+    private static final double BACKLOG_BATCHES_PER_SECOND = 2;
+    private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+    private ObjectFactory<GameRecorder> gameRecorders;
     private File logFile;
-    private GameUploader client;
+    private File logConfigFile;
+    private BacklogUploader backlogUploader;
+    private BackgroundScheduler backgroundScheduler;
+    private MetricsRegistry metrics;
+    private LogConfigAnalyzerConfigurer logConfigAnalyzerConfigurer;
+    private ApplicationProperties properties;
+    private volatile boolean running;
+    private Thread poller;
 
     @Autowired
-    public GameLogManager(GameRecorder gameRecorder,
+    public GameLogManager(ObjectFactory<GameRecorder> gameRecorders,
                           File logFile,
-                          GameUploader client) {
-        this.gameRecorder = gameRecorder;
+                          File logConfigFile,
+                          @Lazy BacklogUploader backlogUploader,
+                          BackgroundScheduler backgroundScheduler,
+                          MetricsRegistry metrics,
+                          LogConfigAnalyzerConfigurer logConfigAnalyzerConfigurer,
+                          ApplicationProperties properties) {
+        this.gameRecorders = gameRecorders;
         this.logFile = logFile;
-        this.client = client;
+        this.logConfigFile = logConfigFile;
+        this.backlogUploader = backlogUploader;
+        this.backgroundScheduler = backgroundScheduler;
+        this.metrics = metrics;
+        this.logConfigAnalyzerConfigurer = logConfigAnalyzerConfigurer;
+        this.properties = properties;
     }
 
-    public void start() throws InterruptedException, IOException {
-        uploadLocallySavedLogs();
-        if (!logFile.exists()) {
-            boolean created = logFile.createNewFile();
-            if (!created) {
-                logger.error("Could not find log file, tried to create empty file : " + logFile.getName() + " but was unable.  Please start Hearthstone before this App, then restart this App.");
-                System.exit(-1);
+    @Override
+    public void start() {
+        startTailers();
+        GameCompressor.deleteLeftoverSpills();
+        backgroundScheduler.submit("backlog-upload", BACKLOG_BATCHES_PER_SECOND, backlogUploader);
+    }
+
+    private void startTailers() {
+        Counter bytesRead = metrics.counter("log_bytes_read_total", "Bytes read from the Hearthstone log");
+        // only the poller thread reads, so every tailer can read into the same buffer
+        ByteBuffer buffer = ByteBuffer.allocateDirect(LogTailer.BUFFER_SIZE);
+        List<TailedLog> logs = new ArrayList<>();
+        for (ApplicationProperties.LogSource source : logSources()) {
+            TailedLog log = follow(source, bytesRead, buffer);
+            if (log != null) {
+                logs.add(log);
             }
         }
-        Tailer tailer = new Tailer(logFile, gameRecorder, 1000, true);
-        Thread thread = new Thread(tailer);
-        thread.start();
+        if (logs.isEmpty()) {
+            logger.error("Could not follow any Hearthstone log.  Please start Hearthstone before this App, then restart this App.");
+            System.exit(-1);
+        }
+        // A growing backlog means the client can't keep up with the logs
+        metrics.gauge("log_unread_bytes", "Bytes written to the logs that haven't been read yet", () -> {
+            long unread = 0;
+            for (TailedLog log : logs) {
+                unread += Math.max(0, log.file.length() - log.tailer.getPosition());
+            }
+            return unread;
+        });
+        running = true;
+        poller = new Thread(() -> poll(logs), "log-poller");
+        poller.start();
     }
 
-    private void uploadLocallySavedLogs() {
-        Collection<File> files = FileUtils.listFiles(new File(System.getProperty("java.io.tmpdir")), new String[]{"chl"}, false);
-        if (files.size() > 0) {
-            logger.info("Found " + files.size() + " recorded game files that haven't been uploaded.");
+    private List<ApplicationProperties.LogSource> logSources() {
+        if (!properties.getLogSources().isEmpty()) {
+            return properties.getLogSources();
         }
-        for (File file: files) {
-            try {
-                byte[] data = FileUtils.readFileToByteArray(file);
-                GameData gameData = new GameData();
-
-                if (file.getName().startsWith("game")) {
-                    logger.info("Found game for upload : " + file.getName());
-                    String[] gameInfo = file.getName().replace(".chl","").split("_");
-                    gameData.setData(data);
-                    gameData.setStartTime(Long.parseLong(gameInfo[1]));
-                    gameData.setEndTime(Long.parseLong(gameInfo[2]));
-
-                    boolean recorded = client.uploadGame(gameData);
-                    if (recorded) {
-                        deleteFile(file);
-                    }
+        ApplicationProperties.LogSource detected = new ApplicationProperties.LogSource();
+        detected.setLogFile(logFile.getPath());
+        detected.setLogConfigFile(logConfigFile.getPath());
+        return Collections.singletonList(detected);
+    }
+
+    private TailedLog follow(ApplicationProperties.LogSource source, Counter bytesRead, ByteBuffer buffer) {
+        File file = new File(source.getLogFile());
+        String name = source.getName() != null ? source.getName() : file.getPath();
+        try {
+            if (source.getLogConfigFile() != null) {
+                logConfigAnalyzerConfigurer.configure(new File(source.getLogConfigFile()));
+            }
+            if (!file.exists()) {
+                boolean created = file.createNewFile();
+                if (!created) {
+                    logger.error("Could not find log file, tried to create empty file : " + file.getName() + " but was unable.  Please start Hearthstone before this App, then restart this App.");
+                    return null;
                 }
+            }
+        } catch (IOException e) {
+            logger.error("Unable to start reading " + name + " : " + e.getMessage());
+            return null;
+        }
+        GameRecorder recorder = gameRecorders.getObject();
+        LogTailer tailer = new LogTailer(file, recorder, true, bytesRead, buffer, checkpoint(file));
+        recorder.setBoundaryListener(tailer::markBoundary);
+        TailedLog log = new TailedLog(name, file, recorder, tailer);
+        logger.info("Following " + file + ", " + ManagementFactory.getRuntimeMXBean().getUptime() + " ms after launch");
+        return log;
+    }
+
+    // named after the log's path so renaming a source keeps its checkpoint
+    private TailerCheckpoint checkpoint(File file) {
+        if (properties.getCheckpointIntervalMillis() <= 0) return null;
+        long id = ContentHash.of(file.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+        File checkpoints = new File(properties.getDataDir(), "checkpoints");
+        return new TailerCheckpoint(new File(checkpoints, String.format("%016x.checkpoint", id)), properties.getCheckpointIntervalMillis());
+    }
 
-            } catch (IOException e) {
-                e.printStackTrace();
-                logger.error("Failed to read file : " + file.getName());
+    // Reads every log until it's caught up and only waits once none of them had anything new.
+    private void poll(List<TailedLog> logs) {
+        long idleCheckMillis = MAX_IDLE_CHECK_MILLIS;
+        for (long timeout : new long[]{properties.getGameIdleTimeoutMillis(), properties.getBackgroundIdleMillis()}) {
+            if (timeout > 0) {
+                idleCheckMillis = Math.min(idleCheckMillis, timeout);
+            }
+        }
+        long nextIdleCheck = System.currentTimeMillis() + idleCheckMillis;
+        Set<Path> directories = new HashSet<>();
+        for (TailedLog log : logs) {
+            directories.add(log.file.getAbsoluteFile().toPath().getParent());
+        }
+        try (LogWatcher watcher = new LogWatcher(directories)) {
+            while (running) {
+                boolean read = false;
+                for (TailedLog log : logs) {
+                    try {
+                        read |= log.tailer.poll();
+                    } catch (RuntimeException e) {
+                        logger.error("Failed to read " + log.name + " :");
+                        log.recorder.handle(e);
+                    }
+                }
+                if (System.currentTimeMillis() >= nextIdleCheck) {
+                    for (TailedLog log : logs) {
+                        log.recorder.checkIdle();
+                    }
+                    nextIdleCheck = System.currentTimeMillis() + idleCheckMillis;
+                }
+                if (read) {
+                    watcher.reset();
+                } else {
+                    watcher.await();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // prototype recorders aren't destroyed by Spring
+            for (TailedLog log : logs) {
+                log.tailer.close();
+                log.tailer.saveCheckpoint();
+                log.recorder.shutdown();
             }
         }
     }
 
-    private void deleteFile(File file) {
+    /**
+     * Waits for the poller to close the logs, save their checkpoints and close the games in progress.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = poller;
+        if (thread == null || thread == Thread.currentThread()) return;
+        thread.interrupt();
         try {
-            logger.info("Attempting to delete temporary file: " + file.getAbsolutePath());
-            boolean deleted = file.delete();
-            if (deleted) {
-                logger.info("Deleted temporary file : " + file.getAbsolutePath());
-            } else {
-                logger.error("Failed to delete temporary file : " + file.getAbsolutePath());
-            }
-        } catch (Exception e) {
-            logger.error("Failed to delete temporary file : " + file.getAbsolutePath());
+            thread.join(STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            logger.warn("The log poller didn't stop within " + STOP_TIMEOUT_MILLIS + " ms");
+        }
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        stop();
+        callback.run();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return true;
+    }
+
+    // started after everything else, the window's log appender included, and stopped first
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+
+    private static class TailedLog {
+        private final String name;
+        private final File file;
+        private final GameRecorder recorder;
+        private final LogTailer tailer;
+
+        TailedLog(String name, File file, GameRecorder recorder, LogTailer tailer) {
+            this.name = name;
+            this.file = file;
+            this.recorder = recorder;
+            this.tailer = tailer;
         }
     }
-}
\ No newline at end of file
+}
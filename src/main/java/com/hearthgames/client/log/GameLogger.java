@@ -1,6 +1,6 @@
 package com.hearthgames.client.log;
 
-import org.apache.commons.lang3.StringUtils;
+import java.util.Arrays;
 
 /**
  * The Game Loggers that are supported.  Hearthstone has several loggers that can be enable in the log.config file,
@@ -25,6 +25,24 @@ public enum GameLogger {
     Arena("[Arena]"),
     Rachelle("[Rachelle]");
 
+    // Loggers indexed by the first character of their name after the '[', so a line only needs to be compared
+    // against the one or two loggers it could possibly start with.
+    private static final GameLogger[][] BY_FIRST_CHAR = new GameLogger[128][];
+
+    static {
+        for (GameLogger gameLogger : values()) {
+            char first = gameLogger.name.charAt(1);
+            GameLogger[] candidates = BY_FIRST_CHAR[first];
+            if (candidates == null) {
+                candidates = new GameLogger[]{gameLogger};
+            } else {
+                candidates = Arrays.copyOf(candidates, candidates.length + 1);
+                candidates[candidates.length - 1] = gameLogger;
+            }
+            BY_FIRST_CHAR[first] = candidates;
+        }
+    }
+
     private String name;
 
     GameLogger(String name) {
@@ -36,16 +54,35 @@ public enum GameLogger {
     }
 
     public static boolean isLineValid(String line) {
-        if (StringUtils.isEmpty(line)) return false;
-        for (GameLogger gameLogger : GameLogger.values()) {
+        return classify(line) != null;
+    }
+
+    /**
+     * Finds the logger that wrote the line by looking at the "[Logger]" prefix Hearthstone puts at the start of it.
+     *
+     * @return the logger or null if the line wasn't written by one of the supported loggers
+     */
+    public static GameLogger classify(CharSequence line) {
+        if (line == null || line.length() < 3 || line.charAt(0) != '[') return null;
+        char first = line.charAt(1);
+        if (first >= BY_FIRST_CHAR.length) return null;
+        GameLogger[] candidates = BY_FIRST_CHAR[first];
+        if (candidates == null) return null;
+        for (GameLogger gameLogger : candidates) {
             if (matchesLogger(gameLogger, line)) {
-                return true;
+                return gameLogger;
             }
         }
-        return false;
+        return null;
     }
 
-    private static boolean matchesLogger(GameLogger gameLogger, String line) {
-        return line.contains(gameLogger.name());
+    private static boolean matchesLogger(GameLogger gameLogger, CharSequence line) {
+        String name = gameLogger.name;
+        int length = name.length();
+        if (line.length() < length) return false;
+        for (int i = 2; i < length; i++) {
+            if (line.charAt(i) != name.charAt(i)) return false;
+        }
+        return true;
     }
 }
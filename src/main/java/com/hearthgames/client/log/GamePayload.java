@@ -0,0 +1,49 @@
+package com.hearthgames.client.log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A compressed game to upload.  The data can be held in memory ({@link GameData}) or read straight from where it's
+ * stored, so replaying large games from the spool never loads them onto the heap.
+ */
+public interface GamePayload {
+
+    /**
+     * @return the id of the {@link GameType}
+     */
+    int getGameType();
+
+    /**
+     * @return the rank of a ranked game, 0 if unknown
+     */
+    int getRank();
+
+    /**
+     * @return the id of the {@link com.hearthgames.client.compression.CompressionDictionary} the data was compressed
+     * with, 0 for none
+     */
+    int getDictionaryId();
+
+    long getStartTime();
+
+    long getEndTime();
+
+    long getHash();
+
+    /**
+     * @return the length of the compressed data
+     */
+    int getLength();
+
+    /**
+     * Writes the compressed data to the stream.
+     */
+    void writeTo(OutputStream out) throws IOException;
+
+    /**
+     * @return a stream over the compressed data, for callers that need to pull it such as the JSON encoder
+     */
+    InputStream openStream() throws IOException;
+}
@@ -1,107 +1,281 @@
 package com.hearthgames.client.log;
 
+import com.hearthgames.client.background.BackgroundScheduler;
+import com.hearthgames.client.compression.CompressionDictionary;
+import com.hearthgames.client.config.ApplicationProperties;
+import com.hearthgames.client.live.LiveStreamer;
+import com.hearthgames.client.metrics.Counter;
+import com.hearthgames.client.metrics.MetricsRegistry;
+import com.hearthgames.client.power.PowerEvent;
+import com.hearthgames.client.power.PowerEventType;
+import com.hearthgames.client.power.PowerLogParser;
 import org.apache.commons.io.input.TailerListenerAdapter;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.OutputStream;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.zip.DeflaterOutputStream;
+import java.io.UncheckedIOException;
 
 /**
- * The Game Recorder is responsible for handling each line read from the Hearthstone log file and demarking a game
+ * The Game Recorder is responsible for handling each line read from the Hearthstone log file and demarking a game.
+ * Only the lines of the loggers in the {@link LoggerProfile} are kept, every logger's lines and bytes are counted
+ * whether they're kept or not.
+ *
+ * A game that never sees its end (Hearthstone crashed, or a client update changed the logging) can't grow forever:
+ * past the memory limit it's spilled to disk, past the max size it's discarded, and once the log has been idle for the
+ * idle timeout it's recorded if it completed or discarded if it didn't.  The idle check is run by whoever reads the
+ * log, lines are handled under the recorder's lock in case that's another thread.
+ *
+ * Every log has its own recorder, created by the {@link GameLogManager}, while the upload side is shared.  Each tells
+ * the {@link BackgroundScheduler} when its game starts and ends, so low priority work waits for the game.
  */
 @Component
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 public class GameRecorder extends TailerListenerAdapter {
 
     private static final Logger logger = LoggerFactory.getLogger(GameRecorder.class);
 
-    private static final String CREATE_GAME = "CREATE_GAME";
-    private static final String GAME_STATE_COMPLETE = "TAG_CHANGE Entity=GameEntity tag=STATE value=COMPLETE";
     private static final String END_OF_GAME = "---RegisterFriendChallenge---";
 
-    @Autowired
-    private GameUploader gameUploader;
+    private final GameUploadPipeline uploadPipeline;
+    private final RecordedGamesIndex recordedGames;
+    private final LiveStreamer.Feed live;
+    private final BackgroundScheduler scheduler;
+    private final Counter linesRead;
+    private final Counter linesRecorded;
+    private final Counter gamesRecorded;
+    private final Counter gamesDuplicate;
+    private final Counter rawBytes;
+    private final Counter compressedBytes;
+    private final Counter[] loggerLines = new Counter[GameLogger.values().length];
+    private final Counter[] loggerBytes = new Counter[GameLogger.values().length];
+    private final Counter otherLines;
+    private final Counter gamesTimedOut;
+    private final Counter gamesAbandoned;
+    private final LoggerProfile profile;
+    private final long maxGameBytes;
+    private final long idleTimeoutMillis;
+    private final long backgroundIdleMillis;
 
-    private StringBuilder currentGame = new StringBuilder();
+    private final PowerLogParser powerParser = new PowerLogParser();
+    private final GameTypeDetector gameTypeDetector = new GameTypeDetector();
+    private final GameCompressor currentGame;
+    private Runnable boundaryListener = () -> {};
+    private PowerEvent.Source gameSource;
+    private boolean gameCreated;
     private boolean gameComplete;
     private long startTime;
     private long endTime;
+    // lines handled, and when the idle check last saw the count change
+    private long lineCount;
+    private long checkedLineCount;
+    private long idleSince = System.currentTimeMillis();
+    // the game went idle and stopped holding back the background work
+    private boolean idleReported;
+
+    // the upload side is only needed once the first game ends, it's created then rather than before the log is tailed
+    @Autowired
+    public GameRecorder(@Lazy GameUploadPipeline uploadPipeline, @Lazy RecordedGamesIndex recordedGames, LiveStreamer liveStreamer,
+                        BackgroundScheduler scheduler, MetricsRegistry metrics, ApplicationProperties properties) {
+        this.uploadPipeline = uploadPipeline;
+        this.recordedGames = recordedGames;
+        this.live = liveStreamer.newFeed();
+        this.scheduler = scheduler;
+        this.linesRead = metrics.counter("log_lines_read_total", "Lines read from the Hearthstone log");
+        this.linesRecorded = metrics.counter("log_lines_recorded_total", "Lines from a supported logger, kept in the game");
+        this.gamesRecorded = metrics.counter("games_recorded_total", "Games recorded from the log");
+        this.gamesDuplicate = metrics.counter("games_duplicate_total", "Games skipped because they were already recorded");
+        this.rawBytes = metrics.counter("game_raw_bytes_total", "Size of the recorded games before compression");
+        this.compressedBytes = metrics.counter("game_compressed_bytes_total", "Size of the recorded games after compression");
+        metrics.gauge("game_compression_ratio", "Raw size over compressed size of all the games recorded so far", () ->
+                compressedBytes.get() == 0 ? 0 : (double) rawBytes.get() / compressedBytes.get());
+        // the logs are almost all ASCII, counting characters is close enough to bytes without encoding every line
+        for (GameLogger gameLogger : GameLogger.values()) {
+            String name = gameLogger.name().toLowerCase();
+            loggerLines[gameLogger.ordinal()] = metrics.counter("log_" + name + "_lines_total", "Lines read from the " + gameLogger.getName() + " logger");
+            loggerBytes[gameLogger.ordinal()] = metrics.counter("log_" + name + "_bytes_total", "Bytes read from the " + gameLogger.getName() + " logger");
+        }
+        this.otherLines = metrics.counter("log_other_lines_total", "Lines read that weren't written by a supported logger");
+        this.gamesTimedOut = metrics.counter("games_timed_out_total", "Completed games recorded after the log went idle without the end of game line");
+        this.gamesAbandoned = metrics.counter("games_abandoned_total", "Games discarded because they went idle before completing or passed the max size");
+        this.profile = LoggerProfile.fromName(properties.getLoggerProfile());
+        this.currentGame = new GameCompressor(CompressionDictionary.get(properties.getCompressionDictionary()),
+                properties.getCompressionLevel(), properties.getGameMemoryBytes());
+        this.maxGameBytes = properties.getGameMaxBytes();
+        this.idleTimeoutMillis = properties.getGameIdleTimeoutMillis();
+        this.backgroundIdleMillis = properties.getBackgroundIdleMillis();
+    }
+
+    /**
+     * @param boundaryListener told whenever the recorder is left with nothing buffered, on the thread that handled the
+     *                         last line or ran the idle check
+     */
+    public void setBoundaryListener(Runnable boundaryListener) {
+        this.boundaryListener = boundaryListener;
+    }
 
     @Override
-    public void handle(String line) {
-        if (!GameLogger.isLineValid(line)) return;
-        if (line.contains(CREATE_GAME)) {
+    public synchronized void handle(String line) {
+        lineCount++;
+        linesRead.increment();
+        if (idleReported) {
+            idleReported = false;
+            if (gameCreated && !gameComplete) {
+                scheduler.gameStarted(this);
+            }
+        }
+        GameLogger gameLogger = GameLogger.classify(line);
+        if (gameLogger == null) {
+            otherLines.increment();
+            return;
+        }
+        loggerLines[gameLogger.ordinal()].increment();
+        loggerBytes[gameLogger.ordinal()].add(line.length() + 1);
+        if (!profile.includes(gameLogger)) return;
+        linesRecorded.increment();
+        boolean power = gameLogger == GameLogger.Power;
+        if (currentGame.getCompressedLength() > maxGameBytes) {
+            tooLarge();
+        }
+        currentGame.write(line);
+        PowerEvent event = null;
+        if (power) {
+            event = powerParser.parse(line);
+        } else {
+            gameTypeDetector.handle(gameLogger, line);
+        }
+        if (event != null && event.getType() == PowerEventType.CREATE_GAME && !isRepeated(event)) {
             startTime = System.currentTimeMillis();
-            currentGame.append(line).append("\n");
-        } else if (currentGame != null && line.contains(GAME_STATE_COMPLETE)) {
-            currentGame.append(line).append("\n");
+            gameCreated = true;
+            gameSource = event.getSource();
+            gameTypeDetector.gameStarted();
+            scheduler.gameStarted(this);
+            live.startGame();
+            live.append(line);
+        } else if (event != null && event.isGameEntity() && event.isTagChange("STATE", "COMPLETE") && !isRepeated(event)) {
             gameComplete = true;
             endTime = System.currentTimeMillis();
-        } else if (currentGame != null && gameComplete && line.contains(END_OF_GAME)) {
-            currentGame.append(line).append("\n");
-            GameData gameData = createGameData(currentGame.toString(), startTime, endTime);
-            if (!hasGameBeenRecorded(gameData) && isGameValid(currentGame.toString())) {
-                recordedGames.add(gameData);
-                gameUploader.uploadGame(gameData);
-            }
+            scheduler.gameEnded(this);
+            live.append(line);
+            live.endGame();
+        } else if (power) {
+            live.append(line);
+        } else if (gameComplete && gameLogger == GameLogger.Bob && line.contains(END_OF_GAME)) {
+            recordGame();
+        }
+    }
+
+    private void recordGame() {
+        GameData gameData;
+        try {
+            gameData = createGameData(currentGame.finish(), startTime, endTime);
+        } catch (UncheckedIOException e) {
+            logger.error("Discarding game : " + e.getMessage());
+            gamesAbandoned.increment();
+            resetGame();
+            boundaryListener.run();
+            return;
+        }
+        gameData.setGameType(gameTypeDetector.getGameType().getId());
+        gameData.setRank(gameTypeDetector.getRank());
+        if (gameCreated && recordedGames.add(gameData.getHash())) {
+            gamesRecorded.increment();
+            rawBytes.add(currentGame.getRawLength());
+            compressedBytes.add(gameData.getData().length);
+            uploadPipeline.submit(gameData);
+        } else if (gameCreated) {
+            gamesDuplicate.increment();
+        }
+        resetGame();
+        boundaryListener.run();
+    }
+
+    // Lines before a game starts are kept with it, so without a game only they are dropped and what the game type
+    // detector has seen so far is kept.
+    private void tooLarge() {
+        if (gameCreated) {
+            logger.warn("Discarding game that passed " + maxGameBytes + " compressed bytes without ending.");
+            gamesAbandoned.increment();
+            live.endGame();
             resetGame();
-        } else if (currentGame != null) {
-            currentGame.append(line).append("\n");
+        } else {
+            logger.info("Dropping " + currentGame.getRawLength() + " bytes of log lines read outside of a game.");
+            currentGame.reset();
         }
     }
 
-    private GameData createGameData(String currentGame, long startTime, long endTime) {
+    /**
+     * Closes the current game if no line has been handled for the idle timeout: a completed game is recorded as if
+     * the end of game line had been read, one that never completed is discarded.  Lines read outside of a game are
+     * left for the next one.
+     *
+     * Well before that, once no line has been handled for background-idle-millis, a game in progress stops holding back
+     * the background work until its next line.
+     */
+    public synchronized void checkIdle() {
+        long now = System.currentTimeMillis();
+        if (lineCount != checkedLineCount) {
+            checkedLineCount = lineCount;
+            idleSince = now;
+            return;
+        }
+        if (!gameCreated) return;
+        if (backgroundIdleMillis > 0 && !gameComplete && !idleReported && now - idleSince >= backgroundIdleMillis) {
+            scheduler.gameEnded(this);
+            idleReported = true;
+        }
+        if (idleTimeoutMillis <= 0 || now - idleSince < idleTimeoutMillis) return;
+        long idleMinutes = (now - idleSince) / 60000;
+        if (gameComplete) {
+            logger.info("Recording game that completed without " + END_OF_GAME + ", the log has been idle for " + idleMinutes + " minutes.");
+            gamesTimedOut.increment();
+            recordGame();
+        } else {
+            logger.warn("Discarding game that never completed, the log has been idle for " + idleMinutes + " minutes.");
+            gamesAbandoned.increment();
+            live.endGame();
+            resetGame();
+            boundaryListener.run();
+        }
+    }
+
+    // GameState and PowerTaskList both log the game, only follow the one that logged CREATE_GAME
+    private boolean isRepeated(PowerEvent event) {
+        return gameSource != null && event.getSource() != gameSource;
+    }
+
+    private GameData createGameData(byte[] data, long startTime, long endTime) {
         GameData gameData = new GameData();
-        gameData.setData(compress(currentGame));
+        gameData.setData(data);
+        gameData.setDictionaryId(currentGame.getDictionaryId());
+        gameData.setHash(ContentHash.of(data));
         gameData.setStartTime(startTime);
         gameData.setEndTime(endTime);
         return gameData;
     }
 
     private void resetGame() {
-        currentGame = new StringBuilder();
+        currentGame.reset();
+        gameSource = null;
+        gameTypeDetector.reset();
+        gameCreated = false;
         gameComplete = false;
+        idleReported = false;
+        scheduler.gameEnded(this);
         startTime = 0;
         endTime = 0;
     }
 
-    private boolean isGameValid(String game) {
-        return game.contains(CREATE_GAME) && game.contains(GAME_STATE_COMPLETE);
-    }
-
-    private List<GameData> recordedGames = new ArrayList<>();
-
-    // This method is needed because of a bug in Tailer that results in the log being re-read from the beginning when
-    // Hearthstone is exited out. So we have to unfortunately compare previous games data.
-    // See https://issues.apache.org/jira/browse/IO-279
-    private boolean hasGameBeenRecorded(GameData data) {
-        for (GameData md : recordedGames) {
-            if (Arrays.equals(data.getData(), md.getData())) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private byte[] compress(String text) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (OutputStream out = new DeflaterOutputStream(baos)){
-            out.write(text.getBytes("UTF-8"));
-        } catch (IOException e) {
-            throw new AssertionError(e);
-        }
-        return baos.toByteArray();
-    }
-
     public void handle(Exception e) {
         logger.error(ExceptionUtils.getStackTrace(e));
     }
+
+    public synchronized void shutdown() {
+        currentGame.close();
+    }
 }
\ No newline at end of file
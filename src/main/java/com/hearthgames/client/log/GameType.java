@@ -0,0 +1,36 @@
+package com.hearthgames.client.log;
+
+/**
+ * The mode a game was played in, sent to the server as its id.  UNKNOWN (0) is what the server got before the client
+ * detected game types, and is still sent when the loggers that tell the modes apart aren't enabled.
+ */
+public enum GameType {
+
+    UNKNOWN(0),
+    RANKED(1),
+    CASUAL(2),
+    ARENA(3),
+    ADVENTURE(4),
+    PRACTICE(5),
+    FRIENDLY(6),
+    TAVERN_BRAWL(7);
+
+    private final int id;
+
+    GameType(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public static GameType fromId(int id) {
+        for (GameType gameType : values()) {
+            if (gameType.id == id) {
+                return gameType;
+            }
+        }
+        return UNKNOWN;
+    }
+}
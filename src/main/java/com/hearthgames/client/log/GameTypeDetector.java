@@ -0,0 +1,133 @@
+package com.hearthgames.client.log;
+
+/**
+ * Works out the type of the game being recorded from the lines around it, as they're read:
+ *
+ * [LoadingScreen] reports every scene change, the scene we came from when the game scene loads is the mode
+ *                 (TOURNAMENT is the play mode, DRAFT the arena, ...).
+ * [Bob]           registers each screen as it's shown, which tells the modes apart when LoadingScreen isn't enabled,
+ *                 and is the only place practice games are told apart from adventures.
+ * [Asset]         unloads the rank medal texture during and after a ranked game, Medal_Ranked_&lt;rank&gt;, so a play
+ *                 mode game with a medal is ranked and anything else is casual.
+ * [Arena]         only logs while drafting or playing an arena deck.
+ *
+ * Only the last screen and the current game's type and rank are kept, nothing is buffered.
+ */
+public class GameTypeDetector {
+
+    private static final String REGISTER_SCREEN = "---RegisterScreen";
+    private static final String SCENE_LOADED = "OnSceneLoaded()";
+    private static final String MEDAL = "Medal_Ranked_";
+
+    private GameType screen = GameType.UNKNOWN;
+    private GameType gameType = GameType.UNKNOWN;
+    private boolean inGame;
+    private int rank;
+
+    /**
+     * Follows a line that isn't part of the Power log.
+     */
+    public void handle(GameLogger gameLogger, String line) {
+        switch (gameLogger) {
+            case Bob:
+                int screenName = line.indexOf(REGISTER_SCREEN);
+                if (screenName >= 0) {
+                    GameType registered = fromBobScreen(line, screenName + REGISTER_SCREEN.length());
+                    if (registered != null) {
+                        screen = registered;
+                    }
+                }
+                break;
+            case LoadingScreen:
+                if (line.contains(SCENE_LOADED) && isMode(line, "currMode=", "GAMEPLAY")) {
+                    GameType previous = fromMode(line, line.indexOf("prevMode="));
+                    // Practice games are loaded from the adventure scene, keep what Bob told us
+                    if (previous != null && !(previous == GameType.ADVENTURE && screen == GameType.PRACTICE)) {
+                        screen = previous;
+                    }
+                }
+                break;
+            case Asset:
+                int medal = line.indexOf(MEDAL);
+                if (medal >= 0 && inGame && (gameType == GameType.CASUAL || gameType == GameType.RANKED)) {
+                    gameType = GameType.RANKED;
+                    if (rank == 0) {
+                        rank = parseRank(line, medal + MEDAL.length());
+                    }
+                }
+                break;
+            case Arena:
+                if (screen == GameType.UNKNOWN) {
+                    screen = GameType.ARENA;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * The game has been created, it's of the type of the screen it was started from.
+     */
+    public void gameStarted() {
+        inGame = true;
+        gameType = screen;
+        rank = 0;
+    }
+
+    /**
+     * The game has been recorded, start over for the next one.
+     */
+    public void reset() {
+        inGame = false;
+        gameType = GameType.UNKNOWN;
+        rank = 0;
+    }
+
+    public GameType getGameType() {
+        return gameType;
+    }
+
+    /**
+     * @return the rank shown for a ranked game, 0 if unknown or legend
+     */
+    public int getRank() {
+        return rank;
+    }
+
+    private static GameType fromBobScreen(String line, int start) {
+        if (line.startsWith("Tourneys", start)) return GameType.CASUAL;
+        if (line.startsWith("Forge", start)) return GameType.ARENA;
+        if (line.startsWith("Practice", start)) return GameType.PRACTICE;
+        if (line.startsWith("Adventure", start)) return GameType.ADVENTURE;
+        if (line.startsWith("Friendly", start)) return GameType.FRIENDLY;
+        if (line.startsWith("TavernBrawl", start)) return GameType.TAVERN_BRAWL;
+        return null;
+    }
+
+    private static GameType fromMode(String line, int field) {
+        if (field < 0) return null;
+        int start = field + "prevMode=".length();
+        if (line.startsWith("TOURNAMENT", start)) return GameType.CASUAL;
+        if (line.startsWith("DRAFT", start)) return GameType.ARENA;
+        if (line.startsWith("ADVENTURE", start)) return GameType.ADVENTURE;
+        if (line.startsWith("FRIENDLY", start)) return GameType.FRIENDLY;
+        if (line.startsWith("TAVERN_BRAWL", start)) return GameType.TAVERN_BRAWL;
+        return null;
+    }
+
+    private static boolean isMode(String line, String field, String mode) {
+        int index = line.indexOf(field);
+        return index >= 0 && line.startsWith(mode, index + field.length());
+    }
+
+    private static int parseRank(String line, int start) {
+        int rank = 0;
+        for (int i = start; i < line.length() && i < start + 2; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') break;
+            rank = rank * 10 + (c - '0');
+        }
+        return rank;
+    }
+}
@@ -0,0 +1,175 @@
+package com.hearthgames.client.log;
+
+import com.hearthgames.client.archive.GameArchive;
+import com.hearthgames.client.config.ApplicationProperties;
+import com.hearthgames.client.metrics.MetricsRegistry;
+import com.hearthgames.client.spool.GameSpool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uploads recorded games in the background so the log tailer never waits on the server.
+ *
+ * Games are queued for a small pool of upload threads.  If the server is offline or returns a 5xx the upload is
+ * retried with exponential backoff and jitter, once the attempts run out the game is saved locally for a later upload.
+ * When the queue is full new games are saved locally straight away instead of blocking the caller.
+ */
+@Component
+@Lazy
+public class GameUploadPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(GameUploadPipeline.class);
+
+    private final GameUploader uploader;
+    private final GameSpool spool;
+    private final GameArchive archive;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final long maxBackoffMillis;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService retries;
+    private final Set<UploadTask> waiting = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public GameUploadPipeline(GameUploader uploader, GameSpool spool, GameArchive archive, ApplicationProperties properties, MetricsRegistry metrics) {
+        this.uploader = uploader;
+        this.spool = spool;
+        this.archive = archive;
+        this.maxAttempts = properties.getUploadMaxAttempts();
+        this.backoffMillis = properties.getUploadBackoffMillis();
+        this.maxBackoffMillis = properties.getUploadMaxBackoffMillis();
+        this.workers = new ThreadPoolExecutor(properties.getUploadThreads(), properties.getUploadThreads(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getUploadQueueSize()),
+                daemonThreads("game-upload"), new ThreadPoolExecutor.AbortPolicy());
+        this.retries = Executors.newSingleThreadScheduledExecutor(daemonThreads("game-upload-retry"));
+        metrics.gauge("upload_queue_size", "Games waiting for an upload thread", this::getQueueSize);
+        metrics.gauge("upload_retry_waiting", "Games waiting to retry their upload", waiting::size);
+        metrics.gauge("spool_pending_games", "Games saved locally that haven't been uploaded yet", spool::size);
+    }
+
+    /**
+     * Queues the game for upload, never blocks.
+     */
+    public void submit(GameData gameData) {
+        execute(new UploadTask(gameData));
+    }
+
+    public int getQueueSize() {
+        return workers.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retries.shutdownNow();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Runnable> pending = workers.shutdownNow();
+        for (Runnable task : pending) {
+            save(((UploadTask) task).gameData);
+        }
+        for (UploadTask task : waiting) {
+            save(task.gameData);
+        }
+    }
+
+    private void execute(UploadTask task) {
+        try {
+            workers.execute(task);
+        } catch (RejectedExecutionException e) {
+            logger.info("Upload queue is full, saving game for later upload.");
+            save(task.gameData);
+        }
+    }
+
+    private void retry(UploadTask task) {
+        if (task.attempts >= maxAttempts) {
+            logger.info("Giving up uploading game after " + task.attempts + " attempts, saving it for later upload.");
+            save(task.gameData);
+            return;
+        }
+        long delay = backoff(task.attempts);
+        logger.info("Retrying upload in " + (delay / 1000) + " seconds.");
+        waiting.add(task);
+        try {
+            retries.schedule(() -> {
+                if (waiting.remove(task)) {
+                    execute(task);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            waiting.remove(task);
+            save(task.gameData);
+        }
+    }
+
+    // Exponential backoff with "equal jitter", half the delay is fixed and half is random so clients spread out.
+    private long backoff(int attempts) {
+        long delay = Math.min(maxBackoffMillis, backoffMillis << Math.min(attempts - 1, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private void save(GameData gameData) {
+        try {
+            spool.append(gameData);
+        } catch (IOException e) {
+            logger.error("Error saving game for later upload : " + e.getMessage());
+        }
+    }
+
+    private void archive(GameData gameData) {
+        try {
+            archive.add(gameData);
+        } catch (IOException e) {
+            logger.warn("Failed to archive game : " + e.getMessage());
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private class UploadTask implements Runnable {
+
+        private final GameData gameData;
+        private int attempts;
+
+        UploadTask(GameData gameData) {
+            this.gameData = gameData;
+        }
+
+        @Override
+        public void run() {
+            attempts++;
+            try {
+                GameUploader.UploadResult result = uploader.upload(gameData);
+                if (result == GameUploader.UploadResult.RETRY) {
+                    retry(this);
+                } else if (result == GameUploader.UploadResult.RECORDED) {
+                    archive(gameData);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Unexpected error uploading game : " + e.getMessage());
+                retry(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.hearthgames.client.log;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpMessageConverterExtractor;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes upload requests straight to the connection.  The game data is streamed from its {@link GamePayload}, as raw
+ * bytes for the binary format or base64 encoded on the fly for JSON, so a request body is never built in memory.
+ */
+@Component
+@Lazy
+public class GameUploadTransport {
+
+    private final RestTemplate restTemplate;
+    private final JsonFactory jsonFactory = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    @Autowired
+    public GameUploadTransport(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
+    /**
+     * Posts one game, or several games as a batch.
+     */
+    public <T> ResponseEntity<T> post(String url, List<? extends GamePayload> games, boolean batch, boolean binary,
+                                      int version, Class<T> responseType) throws RestClientException {
+        RequestCallback callback = request -> {
+            HttpHeaders headers = request.getHeaders();
+            headers.set("User-Agent", "HearthGamesClient");
+            headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+            if (binary) {
+                long length = 0;
+                for (GamePayload game : games) {
+                    length += BinaryGameFormat.size(game);
+                }
+                headers.setContentType(MediaType.parseMediaType(batch ? BinaryGameFormat.BATCH_CONTENT_TYPE : BinaryGameFormat.CONTENT_TYPE));
+                headers.setContentLength(length);
+                writeBinary(request.getBody(), games, version);
+            } else {
+                headers.setContentType(MediaType.APPLICATION_JSON);
+                writeJson(request.getBody(), games, batch, version);
+            }
+        };
+        HttpMessageConverterExtractor<T> extractor = new HttpMessageConverterExtractor<>(responseType, restTemplate.getMessageConverters());
+        return restTemplate.execute(url, HttpMethod.POST, callback,
+                response -> new ResponseEntity<>(extractor.extractData(response), response.getHeaders(), response.getStatusCode()));
+    }
+
+    private void writeBinary(OutputStream out, List<? extends GamePayload> games, int version) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4 + BinaryGameFormat.HEADER_LENGTH);
+        for (GamePayload game : games) {
+            header.clear();
+            BinaryGameFormat.writeHeader(header, game, version);
+            out.write(header.array(), 0, header.position());
+            game.writeTo(out);
+        }
+        out.flush();
+    }
+
+    // Same shape as RecordGameRequest and BatchRecordGameRequest
+    private void writeJson(OutputStream out, List<? extends GamePayload> games, boolean batch, int version) throws IOException {
+        try (JsonGenerator json = jsonFactory.createGenerator(out)) {
+            if (batch) {
+                json.writeStartObject();
+                json.writeNumberField("version", version);
+                json.writeArrayFieldStart("games");
+            }
+            for (GamePayload game : games) {
+                json.writeStartObject();
+                json.writeNumberField("version", version);
+                json.writeNumberField("gameType", game.getGameType());
+                json.writeNumberField("rank", game.getRank());
+                json.writeNumberField("dictionaryId", game.getDictionaryId());
+                json.writeFieldName("data");
+                try (InputStream data = game.openStream()) {
+                    json.writeBinary(data, game.getLength());
+                }
+                json.writeNumberField("startTime", game.getStartTime());
+                json.writeNumberField("endTime", game.getEndTime());
+                json.writeEndObject();
+            }
+            if (batch) {
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+        }
+    }
+}
@@ -1,101 +1,221 @@
 package com.hearthgames.client.log;
 
 import com.hearthgames.client.config.ApplicationProperties;
-import org.apache.commons.io.FileUtils;
+import com.hearthgames.client.metrics.Counter;
+import com.hearthgames.client.metrics.Histogram;
+import com.hearthgames.client.metrics.MetricsRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
-import java.io.*;
+import java.io.Serializable;
 import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The Game Uploader handles communication between the server and client, sending completed game to be recorded on the server.
- * If a game fails to record it will save the game to a temporary file in the users temp directory.
+ * It makes a single attempt, retrying and saving games that failed to upload is up to the {@link GameUploadPipeline}.
  */
 @Component
+@Lazy
 public class GameUploader {
 
     private static final Logger logger = LoggerFactory.getLogger(GameUploader.class);
 
-    private RestTemplate restTemplate;
+    public static final int VERSION = 5;
+    private static final EnumSet<HttpStatus> BATCH_UNSUPPORTED = EnumSet.of(HttpStatus.NOT_FOUND, HttpStatus.METHOD_NOT_ALLOWED, HttpStatus.NOT_IMPLEMENTED);
+
+    private GameUploadTransport transport;
     private ApplicationProperties properties;
+    private volatile boolean batchSupported = true;
+    private volatile boolean binarySupported = true;
+
+    private final Counter requests;
+    private final Counter recorded;
+    private final Counter retries;
+    private final Counter rejected;
+    private final Histogram requestMillis;
+    private final Histogram endToAckMillis;
 
     @Autowired
-    public GameUploader(RestTemplate restTemplate,
-                        ApplicationProperties properties) {
-        this.restTemplate = restTemplate;
+    public GameUploader(GameUploadTransport transport,
+                        ApplicationProperties properties,
+                        MetricsRegistry metrics) {
+        this.transport = transport;
         this.properties = properties;
+        this.requests = metrics.counter("upload_requests_total", "Upload requests sent to the server");
+        this.recorded = metrics.counter("upload_games_recorded_total", "Games the server recorded");
+        this.retries = metrics.counter("upload_games_failed_total", "Games that failed to upload and will be tried again");
+        this.rejected = metrics.counter("upload_games_rejected_total", "Games the server refused for good");
+        this.requestMillis = metrics.histogram("upload_request_millis", "Time taken by upload requests");
+        this.endToAckMillis = metrics.histogram("game_end_to_ack_millis", "Time from the end of a game to the server recording it");
+    }
+
+    /**
+     * Posts the game to the server once.
+     *
+     * @return whether the game was recorded, or if not whether it's worth trying again later
+     */
+    public UploadResult upload(GamePayload game) {
+        return count(game, send(game));
     }
 
-    public boolean uploadGame(GameData gameData) {
+    private UploadResult send(GamePayload game) {
         try {
-            ResponseEntity<RecordGameResponse> response = postGameToServer(createRequestFromData(gameData));
+            logger.info("Posting game to the server...");
+            ResponseEntity<RecordGameResponse> response = post(this.properties.getUploadUrl(),
+                    Collections.singletonList(game), false, isBinary(), RecordGameResponse.class);
             if (response.getStatusCode() == HttpStatus.OK) {
                 if (response.getBody().isUpgradeRequired()) {
                     logger.info(response.getBody().getMsg());
                 } else {
                     logger.info("Game recorded: " + response.getBody().getUrl());
                 }
-                return true;
+                return UploadResult.RECORDED;
             }
         } catch (RestClientException e) {
-            if (e.getCause() instanceof ConnectException) {
-                logger.info("Not able to save game to HearthGames.com at this time because the server is offline.");
-                logger.info(e.getMessage());
-                logger.info("Attempting to save game to local cache for later upload, on restart of the client.");
-                saveGameToFile(gameData);
-            } else {
-                logger.info("Server returned error and will not process game. If a valid game was uploaded it will be queued for analysis and reprocessing on the server.");
+            if (isBinary() && isBinaryUnsupported(e)) {
+                return send(game);
             }
-            logger.info(e.getMessage());
+            return failed(e);
+        }
+        return UploadResult.REJECTED;
+    }
+
+    /**
+     * Posts several games to the server in one request, or one at a time if the server doesn't support batches.
+     *
+     * @return the result for each game, in the same order as the games
+     */
+    public List<UploadResult> uploadBatch(List<? extends GamePayload> games) {
+        List<UploadResult> results = new ArrayList<>(games.size());
+        if (!batchSupported || games.size() == 1) {
+            for (GamePayload game : games) {
+                results.add(upload(game));
+            }
+            return results;
+        }
+        boolean binary = isBinary();
+        try {
+            logger.info("Posting " + games.size() + " games to the server...");
+            ResponseEntity<BatchRecordGameResponse> response = post(this.properties.getUploadBatchUrl(),
+                    games, true, binary, BatchRecordGameResponse.class);
+            if (response.getStatusCode() == HttpStatus.OK) {
+                BatchRecordGameResponse body = response.getBody();
+                if (body == null || body.getResults() == null) {
+                    logger.warn("The server answered the batch without results, will try again.");
+                    return count(games, Collections.nCopies(games.size(), UploadResult.RETRY));
+                }
+                if (body.isUpgradeRequired()) {
+                    logger.info(body.getMsg());
+                }
+                for (int i = 0; i < games.size(); i++) {
+                    RecordGameResult result = i < body.getResults().size() ? body.getResults().get(i) : null;
+                    if (result == null) {
+                        results.add(UploadResult.RETRY);
+                    } else if (result.isRecorded()) {
+                        logger.info("Game recorded: " + result.getUrl());
+                        results.add(UploadResult.RECORDED);
+                    } else {
+                        if (result.getMsg() != null) {
+                            logger.info(result.getMsg());
+                        }
+                        results.add(result.isRetry() ? UploadResult.RETRY : UploadResult.REJECTED);
+                    }
+                }
+                return count(games, results);
+            }
+            return count(games, Collections.nCopies(games.size(), UploadResult.REJECTED));
+        } catch (RestClientException e) {
+            if (binary && isBinaryUnsupported(e)) {
+                return uploadBatch(games);
+            }
+            if (e instanceof HttpStatusCodeException && BATCH_UNSUPPORTED.contains(((HttpStatusCodeException) e).getStatusCode())) {
+                logger.info("The server doesn't support batch uploads, uploading games one at a time.");
+                batchSupported = false;
+                return uploadBatch(games);
+            }
+            return count(games, Collections.nCopies(games.size(), failed(e)));
         }
-        return false;
     }
 
-    private void saveGameToFile(GameData gameData) {
-        String fileName = System.getProperty("java.io.tmpdir");
-        fileName += "game_"+gameData.getStartTime()+"_"+gameData.getEndTime()+".chl";
-
-        File file = new File(fileName);
-        if (!file.exists()) { // don't need to save the game to file if it's already there
-            logger.info("Saving game to : " + fileName);
-            try {
-                FileUtils.writeByteArrayToFile(file, gameData.getData());
-            } catch (IOException e) {
-                logger.error("Error saving game to : " + fileName);
-                StringWriter sw = new StringWriter();
-                e.printStackTrace(new PrintWriter(sw));
-                logger.error(sw.toString());
+    private <T> ResponseEntity<T> post(String url, List<? extends GamePayload> games, boolean batch, boolean binary,
+                                       Class<T> responseType) {
+        requests.increment();
+        long start = System.nanoTime();
+        try {
+            return transport.post(url, games, batch, binary, VERSION, responseType);
+        } finally {
+            requestMillis.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    private List<UploadResult> count(List<? extends GamePayload> games, List<UploadResult> results) {
+        for (int i = 0; i < results.size(); i++) {
+            count(games.get(i), results.get(i));
+        }
+        return results;
+    }
+
+    private UploadResult count(GamePayload game, UploadResult result) {
+        if (result == UploadResult.RECORDED) {
+            recorded.increment();
+            if (game.getEndTime() > 0) {
+                endToAckMillis.record(System.currentTimeMillis() - game.getEndTime());
             }
+        } else if (result == UploadResult.RETRY) {
+            retries.increment();
         } else {
-            logger.info("File already exists. Skipping.");
+            rejected.increment();
         }
+        return result;
     }
 
-    private RecordGameRequest createRequestFromData(GameData data) {
-        RecordGameRequest request = new RecordGameRequest();
-        request.setVersion(5);
-        request.setData(data.getData());
-        request.setStartTime(data.getStartTime());
-        request.setEndTime(data.getEndTime());
-        request.setGameType(data.getGameType());
-        return request;
+    private boolean isBinary() {
+        return properties.isBinaryUpload() && binarySupported;
     }
 
-    private ResponseEntity<RecordGameResponse> postGameToServer(RecordGameRequest request) throws RestClientException {
-        logger.info("Posting game to the server...");
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("User-Agent", "HearthGamesClient");
-        HttpEntity<RecordGameRequest> entity = new HttpEntity<>(request, headers);
-        return restTemplate.postForEntity(this.properties.getUploadUrl(), entity, RecordGameResponse.class);
+    // The server tells us it can't read the binary format with a 415, from then on stick to JSON.
+    private boolean isBinaryUnsupported(RestClientException e) {
+        if (e instanceof HttpStatusCodeException && ((HttpStatusCodeException) e).getStatusCode() == HttpStatus.UNSUPPORTED_MEDIA_TYPE) {
+            logger.info("The server doesn't support binary uploads, uploading games as JSON.");
+            binarySupported = false;
+            return true;
+        }
+        return false;
+    }
+
+    private UploadResult failed(RestClientException e) {
+        if (e.getCause() instanceof ConnectException) {
+            logger.info("Not able to save game to HearthGames.com at this time because the server is offline.");
+            logger.info(e.getMessage());
+            return UploadResult.RETRY;
+        } else if (e instanceof HttpServerErrorException || e instanceof ResourceAccessException) {
+            logger.info("Not able to save game to HearthGames.com at this time because the server is unavailable.");
+            logger.info(e.getMessage());
+            return UploadResult.RETRY;
+        }
+        logger.info("Server returned error and will not process game. If a valid game was uploaded it will be queued for analysis and reprocessing on the server.");
+        logger.info(e.getMessage());
+        return UploadResult.REJECTED;
+    }
+
+    public enum UploadResult {
+        RECORDED,
+        RETRY,
+        REJECTED
     }
 
     public static class RecordGameRequest implements Serializable {
@@ -103,6 +223,8 @@ public class GameUploader {
 
         private int version;
         private int gameType;
+        private int rank;
+        private int dictionaryId;
         private byte[] data;
         private long startTime;
         private long endTime;
@@ -123,6 +245,22 @@ public class GameUploader {
             this.gameType = gameType;
         }
 
+        public int getRank() {
+            return rank;
+        }
+
+        public void setRank(int rank) {
+            this.rank = rank;
+        }
+
+        public int getDictionaryId() {
+            return dictionaryId;
+        }
+
+        public void setDictionaryId(int dictionaryId) {
+            this.dictionaryId = dictionaryId;
+        }
+
         public byte[] getData() {
             return data;
         }
@@ -179,4 +317,103 @@ public class GameUploader {
             this.upgradeRequired = upgradeRequired;
         }
     }
-}
\ No newline at end of file
+
+    public static class BatchRecordGameRequest implements Serializable {
+        private static final long serialVersionUID = 1;
+
+        private int version;
+        private List<RecordGameRequest> games = new ArrayList<>();
+
+        public int getVersion() {
+            return version;
+        }
+
+        public void setVersion(int version) {
+            this.version = version;
+        }
+
+        public List<RecordGameRequest> getGames() {
+            return games;
+        }
+
+        public void setGames(List<RecordGameRequest> games) {
+            this.games = games;
+        }
+    }
+
+    public static class BatchRecordGameResponse implements Serializable {
+        private static final long serialVersionUID = 1;
+
+        private String msg;
+        private boolean upgradeRequired;
+        private List<RecordGameResult> results = new ArrayList<>();
+
+        public String getMsg() {
+            return msg;
+        }
+
+        public void setMsg(String msg) {
+            this.msg = msg;
+        }
+
+        public boolean isUpgradeRequired() {
+            return upgradeRequired;
+        }
+
+        public void setUpgradeRequired(boolean upgradeRequired) {
+            this.upgradeRequired = upgradeRequired;
+        }
+
+        public List<RecordGameResult> getResults() {
+            return results;
+        }
+
+        public void setResults(List<RecordGameResult> results) {
+            this.results = results;
+        }
+    }
+
+    /**
+     * The outcome for one game of a batch.  A game that wasn't recorded is only sent again if retry is set.
+     */
+    public static class RecordGameResult implements Serializable {
+        private static final long serialVersionUID = 1;
+
+        private boolean recorded;
+        private boolean retry;
+        private String url;
+        private String msg;
+
+        public boolean isRecorded() {
+            return recorded;
+        }
+
+        public void setRecorded(boolean recorded) {
+            this.recorded = recorded;
+        }
+
+        public boolean isRetry() {
+            return retry;
+        }
+
+        public void setRetry(boolean retry) {
+            this.retry = retry;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getMsg() {
+            return msg;
+        }
+
+        public void setMsg(String msg) {
+            this.msg = msg;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.hearthgames.client.log;
 
+import com.hearthgames.client.config.ApplicationProperties;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,6 +14,8 @@ import java.util.List;
 
 /**
  * This class Analyzes the log.config file and adds the Loggers required keeping any existing Loggers configured intact.
+ * Only the loggers of the configured {@link LoggerProfile} are turned on, the other supported loggers are removed so
+ * Hearthstone stops writing them.
  */
 @Component
 public class LogConfigAnalyzerConfigurer {
@@ -22,7 +25,17 @@ public class LogConfigAnalyzerConfigurer {
     @Autowired
     private File logConfigFile;
 
+    @Autowired
+    private ApplicationProperties properties;
+
     public void configure() throws IOException {
+        configure(logConfigFile);
+    }
+
+    /**
+     * Configures the log.config of another install than the one found in the default location.
+     */
+    public void configure(File logConfigFile) throws IOException {
         if (!logConfigFile.exists()) {
             boolean created = logConfigFile.createNewFile();
             if (!created) {
@@ -40,25 +53,17 @@ public class LogConfigAnalyzerConfigurer {
         boolean ignoreLogger = false;
         for (String line: originalLines) {
             if (line.startsWith("[")) {
-                ignoreLogger = line.startsWith(GameLogger.Power.getName()) ||
-                        line.startsWith(GameLogger.Asset.getName()) ||
-                        line.startsWith(GameLogger.Bob.getName()) ||
-                        line.startsWith(GameLogger.LoadingScreen.getName()) ||
-                        line.startsWith(GameLogger.Achievements.getName()) ||
-                        line.startsWith(GameLogger.Arena.getName()) ||
-                        line.startsWith(GameLogger.Rachelle.getName());
+                ignoreLogger = GameLogger.classify(line) != null;
             }
             if (!ignoreLogger) {
                 newLogConfig.add(line);
             }
         }
-        addLogger(GameLogger.Power.getName(), newLogConfig);
-        addLogger(GameLogger.Asset.getName(), newLogConfig);
-        addLogger(GameLogger.Bob.getName(), newLogConfig);
-        addLogger(GameLogger.LoadingScreen.getName(), newLogConfig);
-        addLogger(GameLogger.Achievements.getName(), newLogConfig);
-        addLogger(GameLogger.Arena.getName(), newLogConfig);
-        addLogger(GameLogger.Rachelle.getName(), newLogConfig);
+        LoggerProfile profile = LoggerProfile.fromName(properties.getLoggerProfile());
+        for (GameLogger gameLogger : profile.getLoggers()) {
+            addLogger(gameLogger.getName(), newLogConfig);
+        }
+        logger.info("Logger profile " + profile.getName() + " : " + profile.getLoggers());
         return newLogConfig;
     }
 
@@ -0,0 +1,339 @@
+package com.hearthgames.client.log;
+
+import com.hearthgames.client.metrics.Counter;
+import org.apache.commons.io.input.TailerListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+
+/**
+ * Follows a log file and hands every complete line to a {@link TailerListener}, the same contract the commons-io
+ * Tailer uses, so the {@link GameRecorder} works unchanged.
+ *
+ * Unlike the commons-io Tailer it reads through a {@link FileChannel} into a reusable direct buffer and splits lines
+ * on the raw bytes, instead of calling RandomAccessFile.readLine() one byte at a time.  Run on its own thread it wakes
+ * up on WatchService events for the log directory and falls back to polling, backing off while the file is quiet.  The
+ * {@link GameLogManager} calls {@link #poll()} instead, to follow several logs from one thread with one buffer.
+ *
+ * With a {@link TailerCheckpoint} the log is opened where the last run stopped rather than at its end.  The listener
+ * calls {@link #markBoundary()} whenever it has nothing buffered, that's where a restart resumes from.
+ *
+ * Truncation (size smaller than what we've read) and replacement (a different file key, or on Windows a different
+ * creation time or first bytes) are detected explicitly, so
+ * the log is only re-read from the start when Hearthstone actually starts a new one.  The commons-io Tailer re-reads
+ * the whole file whenever the modification time changes without the size growing (https://issues.apache.org/jira/browse/IO-279).
+ */
+public class LogTailer implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogTailer.class);
+
+    static final int BUFFER_SIZE = 64 * 1024;
+    // a poll stops after this many full buffers so one busy log can't hold up the others
+    private static final int MAX_READS_PER_POLL = 16;
+    // hashed with the creation time where there are no file keys
+    private static final int FINGERPRINT_BYTES = 64;
+
+    private final File file;
+    private final Path path;
+    private final TailerListener listener;
+    private final boolean end;
+    private final Counter bytesRead;
+    private final ByteBuffer buffer;
+    private final TailerCheckpoint checkpoint;
+    private byte[] line = new byte[512];
+    private int lineLength;
+
+    private FileChannel channel;
+    private String fileKeyName;
+    private volatile long position;
+    // just past the last line handed to the listener, and that offset when the listener last had nothing buffered
+    private long handled;
+    private long boundary;
+    private boolean started;
+    private volatile boolean run = true;
+
+    public LogTailer(File file, TailerListener listener, boolean end) {
+        this(file, listener, end, null);
+    }
+
+    /**
+     * @param bytesRead counts the bytes read from the log, may be null
+     */
+    public LogTailer(File file, TailerListener listener, boolean end, Counter bytesRead) {
+        this(file, listener, end, bytesRead, ByteBuffer.allocateDirect(BUFFER_SIZE), null);
+    }
+
+    /**
+     * @param buffer the buffer to read into, may be shared by tailers polled from the same thread
+     * @param checkpoint where to resume from and save to, may be null
+     */
+    LogTailer(File file, TailerListener listener, boolean end, Counter bytesRead, ByteBuffer buffer, TailerCheckpoint checkpoint) {
+        this.file = file;
+        this.path = file.toPath().toAbsolutePath();
+        this.listener = listener;
+        this.end = end;
+        this.bytesRead = bytesRead;
+        this.buffer = buffer;
+        this.checkpoint = checkpoint;
+    }
+
+    @Override
+    public void run() {
+        LogWatcher watcher = new LogWatcher(Collections.singleton(path.getParent()));
+        try {
+            while (run) {
+                if (poll()) {
+                    watcher.reset();
+                } else {
+                    watcher.await();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close();
+            saveCheckpoint();
+            watcher.close();
+        }
+    }
+
+    /**
+     * Reads what has been appended since the last call, opening the log or switching to the one that replaced it as
+     * needed.
+     *
+     * @return true if anything was read or the log was replaced, false if the caller should wait before polling again
+     */
+    public boolean poll() {
+        try {
+            if (channel == null) {
+                boolean opened = open(!started);
+                started = true;
+                if (!opened) {
+                    listener.fileNotFound();
+                    return false;
+                }
+            }
+            boolean read = read() > 0 || checkReplaced();
+            if (checkpoint != null && channel != null) {
+                checkpoint.update(fileKeyName, handled, boundary);
+            }
+            return read;
+        } catch (ClosedByInterruptException e) {
+            // the thread is being stopped, the log is opened again if it goes on polling
+            close();
+            return false;
+        } catch (IOException e) {
+            listener.handle(e);
+            close();
+            return false;
+        }
+    }
+
+    public void stop() {
+        run = false;
+    }
+
+    /**
+     * Marks the end of the last line handled as a point the log can be read again from without losing anything.
+     * Called by the listener, on the thread reading the log, whenever it has nothing buffered.
+     */
+    public void markBoundary() {
+        boundary = handled;
+    }
+
+    /**
+     * Saves the checkpoint now rather than waiting for the interval, when the tailer is done.
+     */
+    void saveCheckpoint() {
+        if (checkpoint != null && fileKeyName != null) {
+            checkpoint.update(fileKeyName, handled, boundary);
+            checkpoint.save();
+        }
+    }
+
+    /**
+     * @return how far into the current log file we've read
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * @param first true for the log that was there when the tailer started, which is read from the checkpoint or its
+     *              end, a log that replaced it is always read from the beginning
+     */
+    private boolean open(boolean first) throws IOException {
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        fileKeyName = fileKey(path);
+        position = first ? startPosition() : 0;
+        handled = position;
+        boundary = position;
+        lineLength = 0;
+        return true;
+    }
+
+    private long startPosition() throws IOException {
+        long size = channel.size();
+        if (checkpoint == null || !checkpoint.load()) {
+            return end ? size : 0;
+        }
+        if (!isSameFile(checkpoint.getFileKey(), fileKeyName) || size < checkpoint.getOffset()) {
+            logger.info("Log file was replaced while the client was stopped, reading from the beginning : " + file);
+            return 0;
+        }
+        logger.info("Resuming " + file + " from the last game boundary, " + (size - checkpoint.getOffset())
+                + " bytes were written while the client was stopped");
+        return checkpoint.getBoundary();
+    }
+
+    /**
+     * Reads what has been appended since the last call, up to {@link #MAX_READS_PER_POLL} buffers.
+     *
+     * @return the number of bytes read
+     */
+    private int read() throws IOException {
+        if (channel.size() < position) {
+            logger.info("Log file was truncated, reading from the beginning : " + file);
+            listener.fileRotated();
+            position = 0;
+            handled = 0;
+            boundary = 0;
+            lineLength = 0;
+        }
+        buffer.clear();
+        int total = 0;
+        int read;
+        int reads = 0;
+        long start;
+        while (run && reads++ < MAX_READS_PER_POLL && (read = channel.read(buffer, start = position)) > 0) {
+            position += read;
+            total += read;
+            buffer.flip();
+            split(start);
+            buffer.clear();
+        }
+        if (bytesRead != null) {
+            bytesRead.add(total);
+        }
+        return total;
+    }
+
+    // offset is where the buffer was read from in the log
+    private void split(long offset) {
+        int start = buffer.position();
+        int limit = buffer.limit();
+        for (int i = start; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                append(start, i);
+                emit(offset + i + 1);
+                start = i + 1;
+            }
+        }
+        append(start, limit);
+    }
+
+    private void append(int from, int to) {
+        int length = to - from;
+        if (length == 0) return;
+        if (lineLength + length > line.length) {
+            byte[] grown = new byte[Math.max(line.length * 2, lineLength + length)];
+            System.arraycopy(line, 0, grown, 0, lineLength);
+            line = grown;
+        }
+        buffer.position(from);
+        buffer.get(line, lineLength, length);
+        lineLength += length;
+    }
+
+    private void emit(long lineEnd) {
+        int length = lineLength;
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        lineLength = 0;
+        handled = lineEnd;
+        listener.handle(new String(line, 0, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Hearthstone deletes and recreates the log when it starts, possibly at a size larger than what we've read of the
+     * old one.  Once the old file is fully drained, switch over to the new one.
+     */
+    private boolean checkReplaced() throws IOException {
+        try {
+            String currentKey = fileKey(path);
+            if (isSameFile(fileKeyName, currentKey)) {
+                // the fingerprint covers more of the log as it grows
+                fileKeyName = currentKey;
+                return false;
+            }
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        logger.info("Log file was replaced, reading from the beginning : " + file);
+        close();
+        listener.fileRotated();
+        return open(false);
+    }
+
+    /**
+     * Windows doesn't have file keys, the creation time changes when Hearthstone recreates the log so use that instead.
+     * NTFS gives a file created within seconds of one being deleted the deleted one's creation time though, so a hash
+     * of the first bytes is added: creation time/bytes hashed/hash.
+     */
+    private static String fileKey(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Object key = attributes.fileKey();
+        if (key != null) return key.toString();
+        int length = (int) Math.min(attributes.size(), FINGERPRINT_BYTES);
+        return attributes.creationTime().toMillis() + "/" + length + "/" + Long.toHexString(fingerprint(path, length));
+    }
+
+    // A fingerprint made while the log was shorter only covers the bytes it had then, hash as many of the current ones.
+    private boolean isSameFile(String savedKey, String currentKey) throws IOException {
+        if (currentKey.equals(savedKey)) return true;
+        String[] saved = savedKey.split("/");
+        String[] current = currentKey.split("/");
+        if (saved.length != 3 || current.length != 3 || !saved[0].equals(current[0])) return false;
+        int length = Integer.parseInt(saved[1]);
+        return Integer.parseInt(current[1]) >= length && Long.toHexString(fingerprint(path, length)).equals(saved[2]);
+    }
+
+    private static long fingerprint(Path path, int length) throws IOException {
+        ByteBuffer first = ByteBuffer.allocate(length);
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            int read;
+            do {
+                read = fileChannel.read(first);
+            } while (read >= 0 && first.hasRemaining());
+        }
+        return ContentHash.of(first.array(), 0, first.position());
+    }
+
+    void close() {
+        closeQuietly(channel);
+        channel = null;
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            logger.debug("Failed to close : " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.hearthgames.client.log;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for the log directories to change, with one WatchService for all of them.  Without file system events it
+ * sleeps instead, either way the wait backs off while the logs are quiet so they're still polled now and then.
+ */
+class LogWatcher implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogWatcher.class);
+
+    private static final long MIN_DELAY = 50;
+    private static final long MAX_DELAY = 1000;
+
+    private final WatchService watcher;
+    private long delay = MIN_DELAY;
+
+    LogWatcher(Collection<Path> directories) {
+        this.watcher = openWatcher(directories);
+    }
+
+    /**
+     * Waits until a directory changes or the current delay has passed, doubling the delay if nothing changed.
+     */
+    void await() throws InterruptedException {
+        if (watcher != null) {
+            WatchKey key = watcher.poll(delay, TimeUnit.MILLISECONDS);
+            if (key != null) {
+                // drain the other directories' events too, every log is read after a wake up anyway
+                do {
+                    key.pollEvents();
+                    key.reset();
+                } while ((key = watcher.poll()) != null);
+                delay = MIN_DELAY;
+                return;
+            }
+        } else {
+            Thread.sleep(delay);
+        }
+        delay = Math.min(delay * 2, MAX_DELAY);
+    }
+
+    /**
+     * Something was read, poll quickly again.
+     */
+    void reset() {
+        delay = MIN_DELAY;
+    }
+
+    @Override
+    public void close() {
+        if (watcher == null) return;
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            logger.debug("Failed to close : " + e.getMessage());
+        }
+    }
+
+    private static WatchService openWatcher(Collection<Path> directories) {
+        WatchService watcher = null;
+        try {
+            for (Path directory : directories) {
+                if (directory == null || !Files.isDirectory(directory)) continue;
+                if (watcher == null) {
+                    watcher = directory.getFileSystem().newWatchService();
+                }
+                directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+            return watcher;
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.info("File system events are not available, polling the log files instead.");
+            if (watcher != null) {
+                try {
+                    watcher.close();
+                } catch (IOException closeFailed) {
+                    logger.debug("Failed to close : " + closeFailed.getMessage());
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.hearthgames.client.log;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Which {@link GameLogger}s are turned on in log.config and kept in the recorded games.  Every logger Hearthstone
+ * doesn't need to write is less log to read and less game to upload:
+ *
+ * minimal-power - the game and the screens it was played from, the game type is known but not the rank
+ * play          - adds [Asset] for the rank of ranked games
+ * arena         - adds [Arena] for the arena deck instead
+ * full          - every supported logger
+ *
+ * [Power] holds the game and [Bob] ends it, so every profile has both.
+ */
+public enum LoggerProfile {
+
+    MINIMAL_POWER("minimal-power", GameLogger.LoadingScreen),
+    PLAY("play", GameLogger.LoadingScreen, GameLogger.Asset),
+    ARENA("arena", GameLogger.LoadingScreen, GameLogger.Arena),
+    FULL("full", GameLogger.values());
+
+    private static final Logger logger = LoggerFactory.getLogger(LoggerProfile.class);
+
+    private final String name;
+    private final Set<GameLogger> loggers;
+
+    LoggerProfile(String name, GameLogger... loggers) {
+        this.name = name;
+        EnumSet<GameLogger> set = EnumSet.of(GameLogger.Power, GameLogger.Bob);
+        set.addAll(Arrays.asList(loggers));
+        this.loggers = Collections.unmodifiableSet(set);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the loggers of the profile, in the order they're listed in {@link GameLogger}
+     */
+    public Set<GameLogger> getLoggers() {
+        return loggers;
+    }
+
+    public boolean includes(GameLogger gameLogger) {
+        return loggers.contains(gameLogger);
+    }
+
+    /**
+     * @return the profile with the name, or full if there isn't one
+     */
+    public static LoggerProfile fromName(String name) {
+        for (LoggerProfile profile : values()) {
+            if (profile.name.equalsIgnoreCase(name)) {
+                return profile;
+            }
+        }
+        if (name != null) {
+            logger.warn("Unknown logger profile " + name + ", using " + FULL.name);
+        }
+        return FULL;
+    }
+}
@@ -0,0 +1,197 @@
+package com.hearthgames.client.log;
+
+import com.hearthgames.client.config.ApplicationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Remembers the content hashes of the games that have been recorded so the same game is never uploaded twice, even
+ * after a restart.
+ *
+ * The hashes are kept in a fixed size ring in insertion order, once it's full the oldest game is forgotten.  The ring
+ * lives in a small memory mapped file in the data directory, lookups go through an open addressing table in memory.
+ *
+ * File layout: magic, capacity, count, head (4 bytes each) followed by capacity hashes (8 bytes each).
+ */
+@Component
+@Lazy
+public class RecordedGamesIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecordedGamesIndex.class);
+
+    private static final int MAGIC = 0x48474931; // HGI1
+    private static final int HEADER_SIZE = 16;
+    private static final int COUNT_OFFSET = 8;
+    private static final int HEAD_OFFSET = 12;
+
+    private final int capacity;
+    private final ByteBuffer ring;
+    private final long[] table;
+    private final int mask;
+    private int count;
+    private int head;
+
+    @Autowired
+    public RecordedGamesIndex(ApplicationProperties properties) {
+        this(new File(properties.getDataDir(), "recorded-games.idx"), properties.getRecordedGamesCapacity());
+    }
+
+    public RecordedGamesIndex(File file, int capacity) {
+        this.capacity = capacity;
+        this.table = new long[Integer.highestOneBit(capacity * 2 - 1) << 1];
+        this.mask = table.length - 1;
+        this.ring = open(file, capacity);
+        load();
+    }
+
+    /**
+     * Records the hash of a game.
+     *
+     * @return false if the game had already been recorded
+     */
+    public synchronized boolean add(long hash) {
+        if (contains(hash)) return false;
+        if (count == capacity) {
+            remove(ring.getLong(slot(head)));
+        } else {
+            count++;
+        }
+        ring.putLong(slot(head), hash);
+        head = (head + 1) % capacity;
+        ring.putInt(COUNT_OFFSET, count);
+        ring.putInt(HEAD_OFFSET, head);
+        insert(hash);
+        return true;
+    }
+
+    public synchronized boolean contains(long hash) {
+        for (int i = index(hash); table[i] != 0; i = (i + 1) & mask) {
+            if (table[i] == hash) return true;
+        }
+        return false;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    @PreDestroy
+    public synchronized void flush() {
+        if (ring instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) ring).force();
+        }
+    }
+
+    private void load() {
+        // the oldest entry is at head once the ring has wrapped, otherwise at 0
+        int oldest = count == capacity ? head : 0;
+        for (int i = 0; i < count; i++) {
+            insert(ring.getLong(slot((oldest + i) % capacity)));
+        }
+    }
+
+    private void insert(long hash) {
+        int i = index(hash);
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = hash;
+    }
+
+    // Backward shift deletion keeps probe sequences intact without tombstones.
+    private void remove(long hash) {
+        int i = index(hash);
+        while (table[i] != hash) {
+            if (table[i] == 0) return;
+            i = (i + 1) & mask;
+        }
+        int gap = i;
+        for (i = (i + 1) & mask; table[i] != 0; i = (i + 1) & mask) {
+            int home = index(table[i]);
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                table[gap] = table[i];
+                gap = i;
+            }
+        }
+        table[gap] = 0;
+    }
+
+    private int index(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static int slot(int position) {
+        return HEADER_SIZE + position * 8;
+    }
+
+    private ByteBuffer open(File file, int capacity) {
+        long size = slot(capacity);
+        try {
+            File dir = file.getParentFile();
+            if (dir != null && !dir.exists() && !dir.mkdirs()) {
+                throw new IOException("Unable to create directory : " + dir);
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                 FileChannel channel = raf.getChannel()) {
+                ByteBuffer existing = null;
+                if (channel.size() >= HEADER_SIZE) {
+                    existing = ByteBuffer.allocate((int) channel.size());
+                    channel.read(existing, 0);
+                    existing.flip();
+                }
+                raf.setLength(size);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                initialize(buffer, existing, capacity);
+                return buffer;
+            }
+        } catch (IOException e) {
+            logger.error("Unable to open the recorded games index, games will only be remembered until the client exits : " + e.getMessage());
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            initialize(buffer, null, capacity);
+            return buffer;
+        }
+    }
+
+    private void initialize(ByteBuffer buffer, ByteBuffer existing, int capacity) {
+        int oldCount = 0;
+        int oldHead = 0;
+        int oldCapacity = 0;
+        if (existing != null && existing.getInt(0) == MAGIC) {
+            oldCapacity = existing.getInt(4);
+            oldCount = existing.getInt(COUNT_OFFSET);
+            oldHead = existing.getInt(HEAD_OFFSET);
+            if (oldCapacity <= 0 || oldCount < 0 || oldCount > oldCapacity || oldHead < 0 || oldHead >= oldCapacity
+                    || existing.limit() < slot(oldCapacity)) {
+                logger.warn("Recorded games index is corrupt, starting a new one.");
+                oldCount = 0;
+            }
+        }
+        // copy the newest entries oldest first, this also handles the capacity being changed
+        int keep = Math.min(oldCount, capacity);
+        int oldest = oldCount == oldCapacity ? oldHead : 0;
+        int skip = oldCount - keep;
+        for (int i = 0; i < keep; i++) {
+            buffer.putLong(slot(i), existing.getLong(slot((oldest + skip + i) % oldCapacity)));
+        }
+        for (int i = keep; i < capacity; i++) {
+            buffer.putLong(slot(i), 0);
+        }
+        count = keep;
+        head = keep % capacity;
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, capacity);
+        buffer.putInt(COUNT_OFFSET, count);
+        buffer.putInt(HEAD_OFFSET, head);
+    }
+}
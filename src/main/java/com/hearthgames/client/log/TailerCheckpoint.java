@@ -0,0 +1,118 @@
+package com.hearthgames.client.log;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Where a {@link LogTailer} got to in its log, saved so a restarted client carries on from there instead of at the end
+ * of the log.
+ *
+ * It holds the identity of the log file, the offset just past the last line handled and the offset of the last game
+ * boundary, the last point the recorder had nothing buffered.  The tailer resumes from the boundary so the game that
+ * was in progress is read again from its start, any game that ends up recorded twice is skipped by the
+ * {@link RecordedGamesIndex}.
+ *
+ * Updates only store the offsets, the file is rewritten at most once per interval and replaced atomically so a crash
+ * leaves either the old checkpoint or the new one.  Only used by the thread reading the log.
+ *
+ * File layout: magic (4 bytes), offset, boundary (8 bytes each), file key (UTF).
+ */
+public class TailerCheckpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(TailerCheckpoint.class);
+
+    private static final int MAGIC = 0x48474331; // HGC1
+
+    private final File file;
+    private final long intervalMillis;
+
+    private String fileKey;
+    private long offset;
+    private long boundary;
+    private boolean dirty;
+    private long savedAt;
+    private boolean failed;
+
+    public TailerCheckpoint(File file, long intervalMillis) {
+        this.file = file;
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * @return false if there's no checkpoint or it can't be read
+     */
+    public boolean load() {
+        if (!file.exists()) return false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                logger.warn("Ignoring unreadable tailer checkpoint : " + file);
+                return false;
+            }
+            offset = in.readLong();
+            boundary = in.readLong();
+            fileKey = in.readUTF();
+            return true;
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable tailer checkpoint : " + file + " : " + e.getMessage());
+            return false;
+        }
+    }
+
+    public String getFileKey() {
+        return fileKey;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getBoundary() {
+        return boundary;
+    }
+
+    /**
+     * Saves the new position if the last save was at least the interval ago.
+     */
+    public void update(String fileKey, long offset, long boundary) {
+        if (offset != this.offset || boundary != this.boundary || !fileKey.equals(this.fileKey)) {
+            this.fileKey = fileKey;
+            this.offset = offset;
+            this.boundary = boundary;
+            dirty = true;
+        }
+        if (dirty && System.currentTimeMillis() - savedAt >= intervalMillis) {
+            save();
+        }
+    }
+
+    /**
+     * Saves the position now if it changed since the last save.
+     */
+    public void save() {
+        if (!dirty) return;
+        savedAt = System.currentTimeMillis();
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeLong(offset);
+                out.writeLong(boundary);
+                out.writeUTF(fileKey);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+            failed = false;
+        } catch (IOException e) {
+            // keep tailing, a restart will just start from an older checkpoint
+            if (!failed) {
+                logger.warn("Unable to save the tailer checkpoint : " + file + " : " + e.getMessage());
+                failed = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.hearthgames.client.metrics;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * A value that can go up and down, read from its source whenever the metrics are collected.
+ */
+public class Gauge extends Metric {
+
+    private final DoubleSupplier source;
+
+    Gauge(String name, String help, DoubleSupplier source) {
+        super(name, help);
+        this.source = source;
+    }
+
+    public double get() {
+        return source.getAsDouble();
+    }
+
+    @Override
+    String getType() {
+        return "gauge";
+    }
+}
@@ -0,0 +1,29 @@
+package com.hearthgames.client.metrics;
+
+/**
+ * A named measurement kept by the {@link MetricsRegistry}.  Names follow the Prometheus conventions, lower case with
+ * underscores and counters ending in _total.
+ */
+public abstract class Metric {
+
+    private final String name;
+    private final String help;
+
+    Metric(String name, String help) {
+        this.name = name;
+        this.help = help;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getHelp() {
+        return help;
+    }
+
+    /**
+     * @return the Prometheus type of the metric
+     */
+    abstract String getType();
+}
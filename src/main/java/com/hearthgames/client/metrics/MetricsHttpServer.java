@@ -0,0 +1,95 @@
+package com.hearthgames.client.metrics;
+
+import com.hearthgames.client.config.ApplicationProperties;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves the metrics at http://localhost:&lt;metrics-port&gt;/metrics in the Prometheus text format.  Off unless
+ * application.metrics-port is set, and only ever bound to the loopback address.
+ */
+@Component
+public class MetricsHttpServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsHttpServer.class);
+
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+
+    private final MetricsRegistry registry;
+    private final int port;
+    private HttpServer server;
+
+    @Autowired
+    public MetricsHttpServer(MetricsRegistry registry, ApplicationProperties properties) {
+        this.registry = registry;
+        this.port = properties.getMetricsPort();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (port <= 0) return;
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            server.createContext("/metrics", this::metrics);
+            server.start();
+            logger.info("Metrics available at http://localhost:" + port + "/metrics");
+        } catch (IOException e) {
+            logger.warn("Could not start the metrics endpoint on port " + port + " : " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body = format(registry).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    static String format(MetricsRegistry registry) {
+        StringBuilder text = new StringBuilder(4096);
+        for (Metric metric : registry.getMetrics()) {
+            String name = metric.getName();
+            text.append("# HELP ").append(name).append(' ').append(metric.getHelp()).append('\n');
+            text.append("# TYPE ").append(name).append(' ').append(metric.getType()).append('\n');
+            if (metric instanceof Counter) {
+                text.append(name).append(' ').append(((Counter) metric).get()).append('\n');
+            } else if (metric instanceof Gauge) {
+                text.append(name).append(' ').append(((Gauge) metric).get()).append('\n');
+            } else if (metric instanceof Histogram) {
+                Histogram histogram = (Histogram) metric;
+                for (double quantile : QUANTILES) {
+                    text.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                            .append(histogram.getValueAtQuantile(quantile)).append('\n');
+                }
+                text.append(name).append("_sum ").append(histogram.getSum()).append('\n');
+                text.append(name).append("_count ").append(histogram.getCount()).append('\n');
+            }
+        }
+        return text.toString();
+    }
+}
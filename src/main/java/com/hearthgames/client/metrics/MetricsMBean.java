@@ -0,0 +1,104 @@
+package com.hearthgames.client.metrics;
+
+import javax.management.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exposes every metric in the registry as a read only JMX attribute.  A histogram becomes several attributes: its
+ * count, sum, max and the 50th, 95th and 99th percentiles.
+ */
+class MetricsMBean implements DynamicMBean {
+
+    private static final String[] HISTOGRAM_SUFFIXES = {"_count", "_sum", "_max", "_p50", "_p95", "_p99"};
+
+    private final MetricsRegistry registry;
+
+    MetricsMBean(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Metric metric = registry.getMetric(attribute);
+        if (metric instanceof Counter) return ((Counter) metric).get();
+        if (metric instanceof Gauge) return ((Gauge) metric).get();
+        for (String suffix : HISTOGRAM_SUFFIXES) {
+            if (attribute.endsWith(suffix)) {
+                metric = registry.getMetric(attribute.substring(0, attribute.length() - suffix.length()));
+                if (metric instanceof Histogram) {
+                    return histogramValue((Histogram) metric, suffix);
+                }
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            try {
+                list.add(new Attribute(attribute, getAttribute(attribute)));
+            } catch (AttributeNotFoundException e) {
+                // left out of the list, as the JMX spec asks
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException {
+        throw new MBeanException(new UnsupportedOperationException(actionName));
+    }
+
+    // Built on every call since components can register metrics after the bean is published
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (Metric metric : registry.getMetrics()) {
+            if (metric instanceof Counter) {
+                attributes.add(attribute(metric.getName(), Long.class, metric.getHelp()));
+            } else if (metric instanceof Gauge) {
+                attributes.add(attribute(metric.getName(), Double.class, metric.getHelp()));
+            } else if (metric instanceof Histogram) {
+                for (String suffix : HISTOGRAM_SUFFIXES) {
+                    attributes.add(attribute(metric.getName() + suffix, Long.class, metric.getHelp() + " (" + suffix.substring(1) + ")"));
+                }
+            }
+        }
+        return new MBeanInfo(getClass().getName(), "HearthGames client metrics",
+                attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, null, null);
+    }
+
+    private static MBeanAttributeInfo attribute(String name, Class<?> type, String description) {
+        return new MBeanAttributeInfo(name, type.getName(), description, true, false, false);
+    }
+
+    private static long histogramValue(Histogram histogram, String suffix) {
+        switch (suffix) {
+            case "_count":
+                return histogram.getCount();
+            case "_sum":
+                return histogram.getSum();
+            case "_max":
+                return histogram.getMax();
+            case "_p50":
+                return histogram.getValueAtQuantile(0.5);
+            case "_p95":
+                return histogram.getValueAtQuantile(0.95);
+            default:
+                return histogram.getValueAtQuantile(0.99);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.hearthgames.client.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Holds the client's metrics and publishes them over JMX as com.hearthgames.client:type=Metrics.  Asking for a metric
+ * that already exists returns the existing one, so components can share a metric by name.
+ */
+@Component
+public class MetricsRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsRegistry.class);
+
+    static final String PREFIX = "hearthgames_";
+
+    private final Map<String, Metric> metrics = new ConcurrentSkipListMap<>();
+    private ObjectName objectName;
+
+    public Counter counter(String name, String help) {
+        return register(new Counter(PREFIX + name, help));
+    }
+
+    public Gauge gauge(String name, String help, DoubleSupplier source) {
+        return register(new Gauge(PREFIX + name, help, source));
+    }
+
+    public Histogram histogram(String name, String help) {
+        return register(new Histogram(PREFIX + name, help));
+    }
+
+    /**
+     * @return every metric, sorted by name
+     */
+    public List<Metric> getMetrics() {
+        return new ArrayList<>(metrics.values());
+    }
+
+    public Metric getMetric(String name) {
+        return metrics.get(name);
+    }
+
+    @PostConstruct
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName("com.hearthgames.client:type=Metrics");
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(new MetricsMBean(this), objectName);
+            }
+        } catch (JMException e) {
+            logger.warn("Could not publish metrics over JMX : " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void unregisterMBean() {
+        try {
+            if (objectName != null && ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)) {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            logger.debug("Could not unregister metrics MBean : " + e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Metric> T register(T metric) {
+        Metric existing = metrics.putIfAbsent(metric.getName(), metric);
+        if (existing == null) return metric;
+        if (existing.getClass() != metric.getClass()) {
+            throw new IllegalArgumentException("Metric " + metric.getName() + " is already registered as a " + existing.getType());
+        }
+        return (T) existing;
+    }
+}
@@ -0,0 +1,65 @@
+package com.hearthgames.client.metrics;
+
+import com.hearthgames.client.config.GuiCondition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Publishes the resident memory of the process and logs how long the client took to start and how much memory it
+ * used then, so the headless and windowed modes can be compared.  Resident memory is read from /proc on Linux, other
+ * systems report the memory the JVM has committed instead.
+ */
+@Component
+public class ProcessMetrics implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessMetrics.class);
+
+    private static final File STATUS = new File("/proc/self/status");
+
+    private final Environment environment;
+    private volatile long startupMillis;
+
+    @Autowired
+    public ProcessMetrics(MetricsRegistry metrics, Environment environment) {
+        this.environment = environment;
+        metrics.gauge("process_resident_memory_bytes", "Resident memory of the process", ProcessMetrics::residentBytes);
+        metrics.gauge("startup_millis", "Time from the JVM starting to the client being ready", () -> startupMillis);
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        startupMillis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        logger.info("Started " + (GuiCondition.isHeadless(environment) ? "headless" : "with the window") + " in "
+                + startupMillis + " ms, using " + residentBytes() / (1024 * 1024) + " MB");
+    }
+
+    /**
+     * @return the resident set size on Linux, the committed heap and non heap memory elsewhere
+     */
+    public static long residentBytes() {
+        if (STATUS.exists()) {
+            try {
+                for (String line : Files.readAllLines(STATUS.toPath(), StandardCharsets.US_ASCII)) {
+                    if (line.startsWith("VmRSS:")) {
+                        return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                // fall back to the JVM's view
+            }
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getCommitted()
+                + ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage().getCommitted();
+    }
+}
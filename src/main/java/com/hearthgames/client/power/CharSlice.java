@@ -0,0 +1,50 @@
+package com.hearthgames.client.power;
+
+/**
+ * A window onto part of a line, so the parser can hand out fields without copying them into new Strings.  The slice is
+ * reused for the next line, call toString() to keep its contents.
+ */
+public final class CharSlice implements CharSequence {
+
+    private CharSequence source = "";
+    private int start;
+    private int end;
+
+    void set(CharSequence source, int start, int end) {
+        this.source = source;
+        this.start = start;
+        this.end = end;
+    }
+
+    void clear() {
+        set("", 0, 0);
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return source.charAt(start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        return source.subSequence(start + from, start + to);
+    }
+
+    public boolean contentEquals(String text) {
+        if (text.length() != length()) return false;
+        for (int i = 0; i < text.length(); i++) {
+            if (source.charAt(start + i) != text.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return source.subSequence(start, end).toString();
+    }
+}
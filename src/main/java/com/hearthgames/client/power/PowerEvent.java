@@ -0,0 +1,124 @@
+package com.hearthgames.client.power;
+
+/**
+ * One parsed Power log line.  The parser fills in the same instance for every line, so read what you need before
+ * parsing the next one.  Names (tags, non numeric values, block types, card ids) are interned Strings that can be kept,
+ * entities are slices of the line.
+ */
+public final class PowerEvent {
+
+    /** Which part of the game client logged the line, PowerTaskList repeats what GameState logs. */
+    public enum Source {
+        GAME_STATE, POWER_TASK_LIST, OTHER
+    }
+
+    public static final int NONE = -1;
+
+    PowerEventType type;
+    Source source;
+    int indent;
+    final CharSlice entity = new CharSlice();
+    int entityId;
+    int playerId;
+    String cardId;
+    String tag;
+    String value;
+    int intValue;
+    String blockType;
+    int target;
+
+    void reset() {
+        type = PowerEventType.OTHER;
+        source = Source.OTHER;
+        indent = 0;
+        entity.clear();
+        entityId = NONE;
+        playerId = NONE;
+        cardId = null;
+        tag = null;
+        value = null;
+        intValue = NONE;
+        blockType = null;
+        target = NONE;
+    }
+
+    public PowerEventType getType() {
+        return type;
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    /**
+     * @return how deeply the line is indented, tags and the entities created inside a block are indented under it
+     */
+    public int getIndent() {
+        return indent;
+    }
+
+    /**
+     * @return the entity as written in the log, GameEntity, a player name, an id or [name=... id=... cardId=...]
+     */
+    public CharSequence getEntity() {
+        return entity;
+    }
+
+    /**
+     * @return the id of the entity, 1 for GameEntity, or NONE if the log only gives its name
+     */
+    public int getEntityId() {
+        return entityId;
+    }
+
+    public boolean isGameEntity() {
+        return entityId == 1;
+    }
+
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    public String getCardId() {
+        return cardId;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * @return the value if it's a name such as COMPLETE or PLAY, null for numbers, see {@link #getIntValue()}
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * @return the value if it's a number, META_DATA's Data, otherwise NONE
+     */
+    public int getIntValue() {
+        return intValue;
+    }
+
+    public String getBlockType() {
+        return blockType;
+    }
+
+    public int getTarget() {
+        return target;
+    }
+
+    /**
+     * @return whether this is a TAG_CHANGE setting the tag to the value, e.g. isTagChange("STATE", "COMPLETE")
+     */
+    public boolean isTagChange(String tag, String value) {
+        return type == PowerEventType.TAG_CHANGE && tag.equals(this.tag) && value.equals(this.value);
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + source + " entity=" + entity + " id=" + entityId + " tag=" + tag + " value="
+                + (value != null ? value : String.valueOf(intValue));
+    }
+}
@@ -0,0 +1,32 @@
+package com.hearthgames.client.power;
+
+/**
+ * The kinds of Power log lines the parser understands.
+ */
+public enum PowerEventType {
+
+    /** CREATE_GAME, the start of a game */
+    CREATE_GAME,
+    /** GameEntity EntityID=1 */
+    GAME_ENTITY,
+    /** Player EntityID=2 PlayerID=1 GameAccountId=[...] */
+    PLAYER,
+    /** FULL_ENTITY - Creating ID=4 CardID=EX1_066 */
+    FULL_ENTITY,
+    /** SHOW_ENTITY - Updating Entity=[...] CardID=EX1_066 */
+    SHOW_ENTITY,
+    /** HIDE_ENTITY - Entity=[...] tag=ZONE value=DECK */
+    HIDE_ENTITY,
+    /** TAG_CHANGE Entity=GameEntity tag=STATE value=COMPLETE */
+    TAG_CHANGE,
+    /** tag=ZONE value=PLAY, a tag of the entity above it */
+    TAG,
+    /** META_DATA - Meta=DAMAGE Data=3 Info=1 */
+    META_DATA,
+    /** ACTION_START or BLOCK_START with the entity, block type and target */
+    BLOCK_START,
+    /** ACTION_END or BLOCK_END */
+    BLOCK_END,
+    /** any other Power line, such as the options lists */
+    OTHER
+}
@@ -0,0 +1,249 @@
+package com.hearthgames.client.power;
+
+import com.hearthgames.client.power.PowerEvent.Source;
+
+/**
+ * Turns [Power] log lines into {@link PowerEvent}s as they're read.  The line is scanned in place: fields are
+ * handed out as slices of it or as interned names from a {@link SymbolTable}, so once the names of a game have been
+ * seen parsing a line allocates nothing.
+ *
+ * A parser keeps its symbols and reuses one event, use one per thread.
+ */
+public class PowerLogParser {
+
+    private static final String PREFIX = "[Power] ";
+    private static final String DEBUG_PRINT_POWER = "DebugPrintPower() - ";
+
+    private final PowerEvent event = new PowerEvent();
+    private final SymbolTable symbols;
+
+    public PowerLogParser() {
+        this(new SymbolTable(4096));
+    }
+
+    public PowerLogParser(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * @return the event for the line, valid until the next call, or null if it isn't a Power line
+     */
+    public PowerEvent parse(CharSequence line) {
+        if (!startsWith(line, 0, PREFIX)) return null;
+        PowerEvent event = this.event;
+        event.reset();
+        int length = line.length();
+        int pos = PREFIX.length();
+        if (startsWith(line, pos, "GameState.")) {
+            event.source = Source.GAME_STATE;
+        } else if (startsWith(line, pos, "PowerTaskList.")) {
+            event.source = Source.POWER_TASK_LIST;
+        }
+        int body = indexOf(line, DEBUG_PRINT_POWER, pos, length);
+        if (body < 0) return event;
+        body += DEBUG_PRINT_POWER.length();
+        pos = body;
+        while (pos < length && line.charAt(pos) == ' ') pos++;
+        event.indent = (pos - body) / 4;
+
+        if (startsWith(line, pos, "TAG_CHANGE Entity=")) {
+            event.type = PowerEventType.TAG_CHANGE;
+            tagAndValue(line, entity(line, pos + 18));
+        } else if (startsWith(line, pos, "tag=")) {
+            event.type = PowerEventType.TAG;
+            tagAndValue(line, pos);
+        } else if (startsWith(line, pos, "ACTION_START ") || startsWith(line, pos, "BLOCK_START ")) {
+            event.type = PowerEventType.BLOCK_START;
+            block(line, pos);
+        } else if (startsWith(line, pos, "ACTION_END") || startsWith(line, pos, "BLOCK_END")) {
+            event.type = PowerEventType.BLOCK_END;
+        } else if (startsWith(line, pos, "FULL_ENTITY - ")) {
+            event.type = PowerEventType.FULL_ENTITY;
+            pos += 14;
+            if (startsWith(line, pos, "Creating ID=")) {
+                int end = token(line, pos + 12);
+                event.entityId = parseInt(line, pos + 12, end);
+                event.entity.set(line, pos + 12, end);
+            } else if (startsWith(line, pos, "Updating ")) {
+                entity(line, pos + 9);
+            }
+            cardId(line, pos);
+        } else if (startsWith(line, pos, "SHOW_ENTITY - Updating Entity=")) {
+            event.type = PowerEventType.SHOW_ENTITY;
+            cardId(line, entity(line, pos + 30));
+        } else if (startsWith(line, pos, "HIDE_ENTITY - Entity=")) {
+            event.type = PowerEventType.HIDE_ENTITY;
+            tagAndValue(line, entity(line, pos + 21));
+        } else if (startsWith(line, pos, "META_DATA - Meta=")) {
+            event.type = PowerEventType.META_DATA;
+            int end = token(line, pos + 17);
+            event.tag = symbols.intern(line, pos + 17, end);
+            event.intValue = intField(line, "Data=", end);
+        } else if (startsWith(line, pos, "CREATE_GAME")) {
+            event.type = PowerEventType.CREATE_GAME;
+        } else if (startsWith(line, pos, "GameEntity EntityID=")) {
+            event.type = PowerEventType.GAME_ENTITY;
+            event.entity.set(line, pos, pos + 10);
+            event.entityId = parseInt(line, pos + 20, token(line, pos + 20));
+        } else if (startsWith(line, pos, "Player EntityID=")) {
+            event.type = PowerEventType.PLAYER;
+            int end = token(line, pos + 16);
+            event.entityId = parseInt(line, pos + 16, end);
+            event.playerId = intField(line, "PlayerID=", end);
+        }
+        return event;
+    }
+
+    /**
+     * Reads an entity written as GameEntity, a player name, a number or [name=... id=... cardId=...].
+     *
+     * @return the position after it
+     */
+    private int entity(CharSequence line, int pos) {
+        int length = line.length();
+        if (pos < length && line.charAt(pos) == '[') {
+            int depth = 0;
+            int end = pos;
+            while (end < length) {
+                char c = line.charAt(end++);
+                if (c == '[') {
+                    depth++;
+                } else if (c == ']' && --depth == 0) {
+                    break;
+                }
+            }
+            event.entity.set(line, pos, end);
+            event.entityId = bracketedId(line, pos, end);
+            return end;
+        }
+        int end = token(line, pos);
+        event.entity.set(line, pos, end);
+        if (event.entity.contentEquals("GameEntity")) {
+            event.entityId = 1;
+        } else {
+            event.entityId = parseInt(line, pos, end);
+        }
+        return end;
+    }
+
+    // The id= field of [name=... id=... cardId=...], it comes first when the entity has no name
+    private static int bracketedId(CharSequence line, int start, int end) {
+        int id = startsWith(line, start, "[id=") ? start : indexOf(line, " id=", start, end);
+        return id < 0 ? PowerEvent.NONE : parseInt(line, id + 4, token(line, id + 4));
+    }
+
+    private void tagAndValue(CharSequence line, int from) {
+        int length = line.length();
+        int tag = indexOf(line, "tag=", from, length);
+        if (tag < 0) return;
+        int tagEnd = token(line, tag + 4);
+        event.tag = symbols.intern(line, tag + 4, tagEnd);
+        int value = indexOf(line, "value=", tagEnd, length);
+        if (value < 0) return;
+        int valueEnd = token(line, value + 6);
+        int number = parseInt(line, value + 6, valueEnd);
+        if (number != PowerEvent.NONE || isNumber(line, value + 6, valueEnd)) {
+            event.intValue = number;
+        } else {
+            event.value = symbols.intern(line, value + 6, valueEnd);
+        }
+    }
+
+    private void block(CharSequence line, int from) {
+        int length = line.length();
+        int entity = indexOf(line, "Entity=", from, length);
+        if (entity >= 0) {
+            entity(line, entity + 7);
+        }
+        int type = indexOf(line, "BlockType=", from, length);
+        int typeStart = type + 10;
+        if (type < 0) {
+            type = indexOf(line, "SubType=", from, length);
+            typeStart = type + 8;
+        }
+        if (type >= 0) {
+            event.blockType = symbols.intern(line, typeStart, token(line, typeStart));
+        }
+        int target = indexOf(line, "Target=", from, length);
+        if (target >= 0) {
+            int start = target + 7;
+            if (start < length && line.charAt(start) == '[') {
+                event.target = bracketedId(line, start, length);
+            } else {
+                event.target = parseInt(line, start, token(line, start));
+            }
+        }
+    }
+
+    private void cardId(CharSequence line, int from) {
+        int cardId = indexOf(line, "CardID=", from, line.length());
+        if (cardId < 0) return;
+        int end = token(line, cardId + 7);
+        if (end > cardId + 7) {
+            event.cardId = symbols.intern(line, cardId + 7, end);
+        }
+    }
+
+    private static int intField(CharSequence line, String name, int from) {
+        int field = indexOf(line, name, from, line.length());
+        if (field < 0) return PowerEvent.NONE;
+        int start = field + name.length();
+        return parseInt(line, start, token(line, start));
+    }
+
+    // End of the value starting at pos, values never contain spaces outside of [ ] entities
+    private static int token(CharSequence line, int pos) {
+        int length = line.length();
+        while (pos < length) {
+            char c = line.charAt(pos);
+            if (c == ' ' || c == ']') break;
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * @return the number, or NONE if the characters aren't a number
+     */
+    private static int parseInt(CharSequence line, int start, int end) {
+        if (!isNumber(line, start, end)) return PowerEvent.NONE;
+        boolean negative = line.charAt(start) == '-';
+        int value = 0;
+        for (int i = negative ? start + 1 : start; i < end; i++) {
+            value = value * 10 + (line.charAt(i) - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    // At most 9 digits so the value always fits in an int
+    private static boolean isNumber(CharSequence line, int start, int end) {
+        if (start >= end) return false;
+        int i = line.charAt(start) == '-' ? start + 1 : start;
+        if (i == end || end - i > 9) return false;
+        for (; i < end; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    private static boolean startsWith(CharSequence line, int pos, String prefix) {
+        int length = prefix.length();
+        if (line.length() - pos < length) return false;
+        for (int i = 0; i < length; i++) {
+            if (line.charAt(pos + i) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence line, String text, int from, int to) {
+        int last = to - text.length();
+        char first = text.charAt(0);
+        for (int i = from; i <= last; i++) {
+            if (line.charAt(i) == first && startsWith(line, i, text)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,73 @@
+package com.hearthgames.client.power;
+
+/**
+ * Interns the names that keep coming back in the Power log, tags, zones, block types and card ids, straight from the
+ * line they appear in.  Looking up a name that's already in the table compares it in place and allocates nothing.
+ *
+ * The table has a fixed size so an unusual log can't grow it without limit, once it's full new names are returned as
+ * plain Strings.  Not thread safe, each parser has its own.
+ */
+public class SymbolTable {
+
+    private final String[] symbols;
+    private final int[] hashes;
+    private final int mask;
+    private final int maxSize;
+    private int size;
+
+    /**
+     * @param capacity the number of symbols kept, rounded up to a power of two
+     */
+    public SymbolTable(int capacity) {
+        int slots = Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1) * 2;
+        symbols = new String[slots];
+        hashes = new int[slots];
+        mask = slots - 1;
+        maxSize = slots / 2;
+    }
+
+    /**
+     * @return the interned String for the characters from start to end, the same instance every time
+     */
+    public String intern(CharSequence text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        int slot = mix(hash) & mask;
+        String symbol;
+        while ((symbol = symbols[slot]) != null) {
+            if (hashes[slot] == hash && matches(symbol, text, start, end)) {
+                return symbol;
+            }
+            slot = (slot + 1) & mask;
+        }
+        String created = text.subSequence(start, end).toString();
+        if (size < maxSize) {
+            symbols[slot] = created;
+            hashes[slot] = hash;
+            size++;
+        }
+        return created;
+    }
+
+    public String intern(String text) {
+        return intern(text, 0, text.length());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static boolean matches(String symbol, CharSequence text, int start, int end) {
+        if (symbol.length() != end - start) return false;
+        for (int i = 0; i < symbol.length(); i++) {
+            if (symbol.charAt(i) != text.charAt(start + i)) return false;
+        }
+        return true;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
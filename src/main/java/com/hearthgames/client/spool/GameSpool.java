@@ -0,0 +1,582 @@
+package com.hearthgames.client.spool;
+
+import com.hearthgames.client.config.ApplicationProperties;
+import com.hearthgames.client.log.ContentHash;
+import com.hearthgames.client.log.GameData;
+import com.hearthgames.client.log.GamePayload;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Durable storage for games that couldn't be uploaded yet.
+ *
+ * Games are appended to segment files in the spool directory and described by a fixed size entry in an index file,
+ * so finding the pending games at start up only reads the index and uploading them reads the segments sequentially.
+ * Both files are fsynced before {@link #append(GameData)} or {@link #appendAll(List)} returns.  An uploaded game is
+ * acknowledged by flagging its index entry, segments are deleted once all their games are acknowledged and the index
+ * is rewritten once most of it is acknowledged.  The rewrite keeps the acknowledged entries of the segment being
+ * written, they mark how much of it is indexed so reopening the spool only recovers the records written after them.
+ *
+ * Segment record: magic, length, crc, game type/rank/dictionary (4 bytes each), start time, end time, hash (8 bytes each), data.
+ * Index entry: segment, offset of the data, length, crc, game type/rank/dictionary, start time, end time, hash, state.
+ */
+@Component
+@Lazy
+public class GameSpool {
+
+    private static final Logger logger = LoggerFactory.getLogger(GameSpool.class);
+
+    private static final int RECORD_MAGIC = 0x48475331; // HGS1
+    private static final int RECORD_HEADER_SIZE = 40;
+    private static final int INDEX_MAGIC = 0x48475831; // HGX1
+    private static final int INDEX_VERSION = 1;
+    private static final int INDEX_HEADER_SIZE = 8;
+    private static final int ENTRY_SIZE = 52;
+    private static final int STATE_OFFSET = 48;
+    private static final int PENDING = 0;
+    private static final int ACKED = 1;
+    private static final long SEGMENT_SIZE = 8 * 1024 * 1024;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int VERIFY_CHUNK_SIZE = 64 * 1024;
+    private static final String LEGACY_IMPORTED = "legacy-imported";
+
+    private final File directory;
+    private final Map<Integer, FileChannel> segments = new HashMap<>();
+    private final Map<Integer, Integer> pendingPerSegment = new HashMap<>();
+    private final Set<SpoolEntry> pending = new LinkedHashSet<>();
+    private final ByteBuffer header = ByteBuffer.allocate(Math.max(RECORD_HEADER_SIZE, ENTRY_SIZE));
+    private final CRC32 crc = new CRC32();
+    private FileChannel index;
+    private int entries;
+    // entries indexed in the active segment, acknowledged or not
+    private int activeEntries;
+    private int activeSegment;
+
+    @Autowired
+    public GameSpool(ApplicationProperties properties) throws IOException {
+        this(new File(properties.getDataDir(), "spool"));
+        importLegacyFiles(new File(System.getProperty("java.io.tmpdir")));
+    }
+
+    public GameSpool(File directory) throws IOException {
+        this.directory = directory;
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create spool directory : " + directory);
+        }
+        open();
+    }
+
+    /**
+     * Saves the game and syncs it to disk.
+     */
+    public synchronized SpoolEntry append(GameData gameData) throws IOException {
+        SpoolEntry entry = writeRecord(gameData);
+        segment(activeSegment).force(false);
+        indexEntry(entry);
+        index.force(false);
+        return entry;
+    }
+
+    /**
+     * Saves the games with a single sync of the segment and index at the end, rather than one per game.
+     */
+    public synchronized List<SpoolEntry> appendAll(List<GameData> games) throws IOException {
+        List<SpoolEntry> appended = new ArrayList<>(games.size());
+        for (GameData gameData : games) {
+            appended.add(writeRecord(gameData));
+        }
+        if (appended.isEmpty()) return appended;
+        segment(activeSegment).force(false);
+        for (SpoolEntry entry : appended) {
+            indexEntry(entry);
+        }
+        index.force(false);
+        return appended;
+    }
+
+    // The index must never point at data that isn't on disk, a segment is synced before moving on to the next one
+    private SpoolEntry writeRecord(GameData gameData) throws IOException {
+        byte[] data = gameData.getData();
+        FileChannel segment = segment(activeSegment);
+        if (segment.size() > 0 && segment.size() + RECORD_HEADER_SIZE + data.length > SEGMENT_SIZE) {
+            segment.force(false);
+            activeSegment++;
+            activeEntries = 0;
+            segment = segment(activeSegment);
+        }
+        crc.reset();
+        crc.update(data, 0, data.length);
+        long offset = segment.size();
+        SpoolEntry entry = new SpoolEntry(activeSegment, offset + RECORD_HEADER_SIZE, data.length, (int) crc.getValue(),
+                SpoolEntry.gameInfo(gameData.getGameType(), gameData.getRank(), gameData.getDictionaryId()), gameData.getStartTime(),
+                gameData.getEndTime(), gameData.getHash());
+
+        header.clear();
+        header.putInt(RECORD_MAGIC).putInt(entry.getLength()).putInt(entry.getCrc()).putInt(entry.getGameInfo())
+                .putLong(entry.getStartTime()).putLong(entry.getEndTime()).putLong(entry.getHash());
+        header.flip();
+        writeFully(segment, header, offset);
+        writeFully(segment, ByteBuffer.wrap(data), offset + RECORD_HEADER_SIZE);
+        return entry;
+    }
+
+    private void indexEntry(SpoolEntry entry) throws IOException {
+        writeEntry(entry, entries++);
+        addPending(entry);
+        if (entry.getSegment() == activeSegment) {
+            activeEntries++;
+        }
+    }
+
+    /**
+     * @return the games that haven't been acknowledged, in the order they're stored
+     */
+    public synchronized List<SpoolEntry> pending() {
+        return new ArrayList<>(pending);
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * Checks the game's data against its CRC, reading it from the segment a chunk at a time.  A game that's corrupt or
+     * truncated is logged and acknowledged, so it's dropped rather than uploaded.
+     *
+     * @return false if the game was dropped
+     */
+    public boolean verify(SpoolEntry entry) throws IOException {
+        if (!crcMatches(channel(entry), entry)) {
+            logger.error("Spooled game is corrupt or truncated in segment " + entry.getSegment() + ", dropping it.");
+            acknowledge(entry);
+            return false;
+        }
+        return true;
+    }
+
+    // reads with a local checksum and buffer so the spool isn't locked while a large game is checked
+    private static boolean crcMatches(FileChannel segment, SpoolEntry entry) throws IOException {
+        CRC32 checksum = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(entry.getLength(), VERIFY_CHUNK_SIZE));
+        long position = entry.getOffset();
+        long end = position + entry.getLength();
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int read = segment.read(buffer, position);
+            if (read < 0) return false;
+            buffer.flip();
+            checksum.update(buffer);
+            position += read;
+        }
+        return (int) checksum.getValue() == entry.getCrc();
+    }
+
+    /**
+     * @return the game as a payload that streams its data from the segment file when it's uploaded
+     */
+    public GamePayload payload(SpoolEntry entry) {
+        return new SpooledGame(entry);
+    }
+
+    private synchronized FileChannel channel(SpoolEntry entry) throws IOException {
+        if (!pending.contains(entry)) {
+            throw new IOException("Spooled game has already been acknowledged");
+        }
+        return segment(entry.getSegment());
+    }
+
+    /**
+     * Marks the game as uploaded (or as never to be uploaded) so it's dropped from the spool.
+     */
+    public synchronized void acknowledge(SpoolEntry entry) throws IOException {
+        if (!pending.remove(entry)) return;
+        header.clear();
+        header.putInt(ACKED).flip();
+        writeFully(index, header, INDEX_HEADER_SIZE + (long) entry.slot * ENTRY_SIZE + STATE_OFFSET);
+        index.force(false);
+
+        int remaining = pendingPerSegment.merge(entry.getSegment(), -1, Integer::sum);
+        if (remaining == 0 && entry.getSegment() != activeSegment) {
+            pendingPerSegment.remove(entry.getSegment());
+            deleteSegment(entry.getSegment());
+        }
+        compact();
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        for (FileChannel segment : segments.values()) {
+            closeQuietly(segment);
+        }
+        segments.clear();
+        closeQuietly(index);
+    }
+
+    private void compact() throws IOException {
+        if (pending.isEmpty()) {
+            for (int segment : segmentIds()) {
+                deleteSegment(segment);
+            }
+            pendingPerSegment.clear();
+            activeSegment = 0;
+            activeEntries = 0;
+            index.truncate(INDEX_HEADER_SIZE);
+            index.force(false);
+            entries = 0;
+            return;
+        }
+        int activeAcked = activeEntries - pendingPerSegment.getOrDefault(activeSegment, 0);
+        if ((pending.size() + activeAcked) * 2 < entries && entries > 64) {
+            File compacted = new File(directory, "spool.idx.tmp");
+            Files.deleteIfExists(compacted.toPath());
+            FileChannel previous = index;
+            index = FileChannel.open(compacted.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            writeIndexHeader();
+            Map<Integer, SpoolEntry> pendingBySlot = new HashMap<>();
+            for (SpoolEntry entry : pending) {
+                pendingBySlot.put(entry.slot, entry);
+            }
+            int previousEntries = entries;
+            entries = 0;
+            for (int slot = 0; slot < previousEntries; slot++) {
+                SpoolEntry entry = pendingBySlot.get(slot);
+                if (entry != null) {
+                    writeEntry(entry, entries++);
+                    continue;
+                }
+                header.clear();
+                readFully(previous, header, INDEX_HEADER_SIZE + (long) slot * ENTRY_SIZE);
+                header.flip();
+                if (header.getInt(0) == activeSegment) {
+                    writeFully(index, header, INDEX_HEADER_SIZE + (long) entries++ * ENTRY_SIZE);
+                }
+            }
+            index.force(false);
+            closeQuietly(index);
+            closeQuietly(previous);
+            Files.move(compacted.toPath(), indexFile().toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            index = FileChannel.open(indexFile().toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+    }
+
+    private void open() throws IOException {
+        index = FileChannel.open(indexFile().toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (index.size() < INDEX_HEADER_SIZE || !readIndexHeader()) {
+            if (index.size() > 0) {
+                logger.warn("Spool index is unreadable, rebuilding it from the segments.");
+            }
+            index.truncate(0);
+            writeIndexHeader();
+        }
+        Map<Integer, Long> indexedEnd = new HashMap<>();
+        Map<Integer, Integer> indexedEntries = new HashMap<>();
+        long count = (index.size() - INDEX_HEADER_SIZE) / ENTRY_SIZE;
+        for (int slot = 0; slot < count; slot++) {
+            header.clear();
+            readFully(index, header, INDEX_HEADER_SIZE + (long) slot * ENTRY_SIZE);
+            header.flip();
+            SpoolEntry entry = new SpoolEntry(header.getInt(), header.getLong(), header.getInt(), header.getInt(),
+                    header.getInt(), header.getLong(), header.getLong(), header.getLong());
+            int state = header.getInt();
+            entry.slot = slot;
+            entries = slot + 1;
+            indexedEnd.merge(entry.getSegment(), entry.getOffset() + entry.getLength(), Math::max);
+            indexedEntries.merge(entry.getSegment(), 1, Integer::sum);
+            if (state == PENDING) {
+                addPending(entry);
+            }
+        }
+        // drop a partially written entry
+        index.truncate(INDEX_HEADER_SIZE + (long) entries * ENTRY_SIZE);
+
+        List<Integer> ids = segmentIds();
+        for (int id : ids) {
+            if (!indexedEnd.containsKey(id) && !pendingPerSegment.containsKey(id)) {
+                // a segment the index doesn't know about can only be the one being written when we stopped
+                if (id != ids.get(ids.size() - 1)) {
+                    deleteSegment(id);
+                    continue;
+                }
+            }
+            activeSegment = Math.max(activeSegment, id);
+        }
+        activeEntries = indexedEntries.getOrDefault(activeSegment, 0);
+        recover(activeSegment, indexedEnd.containsKey(activeSegment) ? indexedEnd.get(activeSegment) : 0);
+        for (int id : ids) {
+            if (id != activeSegment && !pendingPerSegment.containsKey(id) && segmentFile(id).exists()) {
+                deleteSegment(id);
+            }
+        }
+        if (!pending.isEmpty()) {
+            logger.info("Found " + pending.size() + " recorded games that haven't been uploaded.");
+        }
+    }
+
+    /**
+     * Indexes records that made it into the last segment but not into the index, then cuts off anything after the
+     * last complete record.
+     */
+    private void recover(int id, long position) throws IOException {
+        if (!segmentFile(id).exists()) return;
+        FileChannel segment = segment(id);
+        boolean recovered = false;
+        while (position + RECORD_HEADER_SIZE <= segment.size()) {
+            header.clear();
+            header.limit(RECORD_HEADER_SIZE);
+            readFully(segment, header, position);
+            header.flip();
+            if (header.getInt() != RECORD_MAGIC) break;
+            int length = header.getInt();
+            int recordCrc = header.getInt();
+            SpoolEntry entry = new SpoolEntry(id, position + RECORD_HEADER_SIZE, length, recordCrc,
+                    header.getInt(), header.getLong(), header.getLong(), header.getLong());
+            if (length < 0 || entry.getOffset() + length > segment.size()) break;
+            if (!crcMatches(segment, entry)) break;
+            indexEntry(entry);
+            position = entry.getOffset() + length;
+            recovered = true;
+        }
+        if (segment.size() > position) {
+            segment.truncate(position);
+        }
+        if (recovered) {
+            index.force(false);
+        }
+    }
+
+    /**
+     * Earlier versions saved games that failed to upload as game_start_end.chl files in the temp directory, move them
+     * into the spool the first time it's opened.
+     */
+    private void importLegacyFiles(File tempDirectory) throws IOException {
+        File marker = new File(directory, LEGACY_IMPORTED);
+        if (marker.exists()) return;
+        if (tempDirectory.isDirectory()) {
+            for (File file : FileUtils.listFiles(tempDirectory, new String[]{"chl"}, false)) {
+                if (!file.getName().startsWith("game")) continue;
+                try {
+                    String[] gameInfo = file.getName().replace(".chl", "").split("_");
+                    GameData gameData = new GameData();
+                    gameData.setData(FileUtils.readFileToByteArray(file));
+                    gameData.setStartTime(Long.parseLong(gameInfo[1]));
+                    gameData.setEndTime(Long.parseLong(gameInfo[2]));
+                    gameData.setHash(ContentHash.of(gameData.getData()));
+                    append(gameData);
+                    logger.info("Moved locally saved game into the spool : " + file.getName());
+                    if (!file.delete()) {
+                        logger.error("Failed to delete temporary file : " + file.getAbsolutePath());
+                    }
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Failed to read file : " + file.getName());
+                }
+            }
+        }
+        if (!marker.createNewFile()) {
+            logger.warn("Unable to create " + marker);
+        }
+    }
+
+    private void addPending(SpoolEntry entry) {
+        pending.add(entry);
+        pendingPerSegment.merge(entry.getSegment(), 1, Integer::sum);
+    }
+
+    private void writeEntry(SpoolEntry entry, int slot) throws IOException {
+        entry.slot = slot;
+        header.clear();
+        header.putInt(entry.getSegment()).putLong(entry.getOffset()).putInt(entry.getLength()).putInt(entry.getCrc())
+                .putInt(entry.getGameInfo()).putLong(entry.getStartTime()).putLong(entry.getEndTime())
+                .putLong(entry.getHash()).putInt(PENDING);
+        header.flip();
+        writeFully(index, header, INDEX_HEADER_SIZE + (long) slot * ENTRY_SIZE);
+    }
+
+    private boolean readIndexHeader() throws IOException {
+        header.clear();
+        header.limit(INDEX_HEADER_SIZE);
+        readFully(index, header, 0);
+        header.flip();
+        return header.getInt() == INDEX_MAGIC && header.getInt() == INDEX_VERSION;
+    }
+
+    private void writeIndexHeader() throws IOException {
+        header.clear();
+        header.putInt(INDEX_MAGIC).putInt(INDEX_VERSION).flip();
+        writeFully(index, header, 0);
+    }
+
+    private FileChannel segment(int id) throws IOException {
+        FileChannel segment = segments.get(id);
+        if (segment == null) {
+            segment = FileChannel.open(segmentFile(id).toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segments.put(id, segment);
+        }
+        return segment;
+    }
+
+    private void deleteSegment(int id) throws IOException {
+        closeQuietly(segments.remove(id));
+        Files.deleteIfExists(segmentFile(id).toPath());
+    }
+
+    private List<Integer> segmentIds() {
+        List<Integer> ids = new ArrayList<>();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                try {
+                    ids.add(Integer.parseInt(file.getName().substring(0, file.getName().length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    logger.warn("Ignoring unknown file in spool : " + file.getName());
+                }
+            }
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private File segmentFile(int id) {
+        return new File(directory, String.format("%08d%s", id, SEGMENT_SUFFIX));
+    }
+
+    private File indexFile() {
+        return new File(directory, "spool.idx");
+    }
+
+    /**
+     * Reads a spooled game straight from its segment.  The channel is shared so only positional reads and transfers are
+     * used, and the spool lock isn't held while the data is on its way to the server.  A segment is only closed once
+     * all its games are acknowledged, which can't happen while one of them is still being uploaded.
+     */
+    private class SpooledGame implements GamePayload {
+
+        private final SpoolEntry entry;
+
+        SpooledGame(SpoolEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public int getGameType() {
+            return entry.getGameType();
+        }
+
+        @Override
+        public int getRank() {
+            return entry.getRank();
+        }
+
+        @Override
+        public int getDictionaryId() {
+            return entry.getDictionaryId();
+        }
+
+        @Override
+        public long getStartTime() {
+            return entry.getStartTime();
+        }
+
+        @Override
+        public long getEndTime() {
+            return entry.getEndTime();
+        }
+
+        @Override
+        public long getHash() {
+            return entry.getHash();
+        }
+
+        @Override
+        public int getLength() {
+            return entry.getLength();
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            FileChannel segment = channel(entry);
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = entry.getOffset();
+            long end = position + entry.getLength();
+            while (position < end) {
+                long transferred = segment.transferTo(position, end - position, target);
+                if (transferred <= 0) throw new IOException("Spooled game is truncated in segment " + entry.getSegment());
+                position += transferred;
+            }
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            FileChannel segment = channel(entry);
+            return new InputStream() {
+                private final ByteBuffer single = ByteBuffer.allocate(1);
+                private long position = entry.getOffset();
+                private final long end = position + entry.getLength();
+
+                @Override
+                public int read() throws IOException {
+                    single.clear();
+                    return read(single) < 0 ? -1 : single.get(0) & 0xFF;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return read(ByteBuffer.wrap(b, off, len));
+                }
+
+                private int read(ByteBuffer buffer) throws IOException {
+                    if (position >= end) return -1;
+                    if (buffer.remaining() > end - position) {
+                        buffer.limit(buffer.position() + (int) (end - position));
+                    }
+                    int read = segment.read(buffer, position);
+                    if (read < 0) throw new IOException("Spooled game is truncated in segment " + entry.getSegment());
+                    position += read;
+                    return read;
+                }
+            };
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("Unexpected end of file");
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("Failed to close : " + e.getMessage());
+        }
+    }
+}
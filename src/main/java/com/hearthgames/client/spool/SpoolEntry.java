@@ -0,0 +1,81 @@
+package com.hearthgames.client.spool;
+
+/**
+ * A game saved in the {@link GameSpool}, with where to find its data and enough about it to upload it without reading
+ * the segment first.
+ */
+public class SpoolEntry {
+
+    private final int segment;
+    private final long offset;
+    private final int length;
+    private final int crc;
+    // game type in the low 16 bits, rank in the next 8 and compression dictionary in the high 8, games spooled before
+    // ranks or dictionaries were recorded have 0 for both
+    private final int gameInfo;
+    private final long startTime;
+    private final long endTime;
+    private final long hash;
+
+    // position of the entry in the index file, changes when the index is compacted
+    int slot;
+
+    SpoolEntry(int segment, long offset, int length, int crc, int gameInfo, long startTime, long endTime, long hash) {
+        this.segment = segment;
+        this.offset = offset;
+        this.length = length;
+        this.crc = crc;
+        this.gameInfo = gameInfo;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.hash = hash;
+    }
+
+    public int getSegment() {
+        return segment;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getCrc() {
+        return crc;
+    }
+
+    public int getGameType() {
+        return gameInfo & 0xFFFF;
+    }
+
+    public int getRank() {
+        return (gameInfo >>> 16) & 0xFF;
+    }
+
+    public int getDictionaryId() {
+        return gameInfo >>> 24;
+    }
+
+    int getGameInfo() {
+        return gameInfo;
+    }
+
+    static int gameInfo(int gameType, int rank, int dictionaryId) {
+        return (gameType & 0xFFFF) | ((rank & 0xFF) << 16) | (dictionaryId << 24);
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+}
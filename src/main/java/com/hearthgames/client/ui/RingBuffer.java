@@ -0,0 +1,64 @@
+package com.hearthgames.client.ui;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A fixed size ring that any number of threads add to without locking and a single thread drains.  Adding never waits
+ * on the reader: when the reader falls more than the capacity behind, the oldest entries are overwritten and skipped.
+ */
+class RingBuffer<E> {
+
+    private final int capacity;
+    private final AtomicReferenceArray<Slot<E>> slots;
+    private final AtomicLong next = new AtomicLong();
+    // only used by the reader
+    private long read;
+
+    RingBuffer(int capacity) {
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    void add(E value) {
+        long sequence = next.getAndIncrement();
+        slots.set((int) (sequence % capacity), new Slot<>(sequence, value));
+    }
+
+    /**
+     * Hands the entries added since the last drain to the consumer, oldest first.  An entry whose slot was claimed but
+     * not written yet is left for the next drain, along with everything after it.
+     *
+     * @return the number of entries that were overwritten before they could be read
+     */
+    long drain(Consumer<E> consumer) {
+        long end = next.get();
+        long skipped = 0;
+        if (end - read > capacity) {
+            skipped = end - capacity - read;
+            read = end - capacity;
+        }
+        while (read < end) {
+            Slot<E> slot = slots.get((int) (read % capacity));
+            if (slot == null || slot.sequence < read) break;
+            if (slot.sequence == read) {
+                consumer.accept(slot.value);
+            } else {
+                skipped++;
+            }
+            read++;
+        }
+        return skipped;
+    }
+
+    private static class Slot<E> {
+        private final long sequence;
+        private final E value;
+
+        Slot(long sequence, E value) {
+            this.sequence = sequence;
+            this.value = value;
+        }
+    }
+}
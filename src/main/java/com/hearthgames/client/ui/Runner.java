@@ -1,10 +1,13 @@
 package com.hearthgames.client.ui;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import com.hearthgames.client.config.GuiCondition;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.stereotype.Component;
 
 @Component
+@Conditional(GuiCondition.class)
 public class Runner implements CommandLineRunner {
 
     @Autowired
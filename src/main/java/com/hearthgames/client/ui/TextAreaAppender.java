@@ -0,0 +1,86 @@
+package com.hearthgames.client.ui;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Layout;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+
+/**
+ * Shows the log in a text area without the logging threads ever waiting on Swing.  Events go into a {@link RingBuffer}
+ * and a Swing timer appends whatever has arrived to the document in one go every 100 ms, on the event dispatch thread.
+ * The text area keeps the last maxLines lines, if more than that arrive between two flushes the oldest are skipped.
+ */
+public class TextAreaAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    private static final int FLUSH_MILLIS = 100;
+
+    private final JTextArea textArea;
+    private final int maxLines;
+    private final RingBuffer<ILoggingEvent> events;
+    private final Timer timer;
+    private Layout<ILoggingEvent> layout;
+
+    public TextAreaAppender(JTextArea textArea, int maxLines) {
+        this.textArea = textArea;
+        this.maxLines = maxLines;
+        this.events = new RingBuffer<>(maxLines);
+        this.timer = new Timer(FLUSH_MILLIS, e -> flush());
+    }
+
+    public void setLayout(Layout<ILoggingEvent> layout) {
+        this.layout = layout;
+    }
+
+    @Override
+    public void start() {
+        if (layout == null) {
+            addError("No layout set for the appender named [" + name + "].");
+            return;
+        }
+        timer.start();
+        super.start();
+    }
+
+    @Override
+    public void stop() {
+        timer.stop();
+        super.stop();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        // the message and thread name are filled in now, the event is formatted later on the event dispatch thread
+        event.prepareForDeferredProcessing();
+        events.add(event);
+    }
+
+    private void flush() {
+        StringBuilder text = new StringBuilder();
+        long skipped = events.drain(event -> text.append(layout.doLayout(event)));
+        if (skipped > 0) {
+            text.insert(0, "... " + skipped + " lines skipped\n");
+        }
+        if (text.length() == 0) return;
+        Document document = textArea.getDocument();
+        try {
+            document.insertString(document.getLength(), text.toString(), null);
+            trim(document);
+        } catch (BadLocationException e) {
+            addError("Unable to append to the text area", e);
+        }
+        textArea.setCaretPosition(document.getLength());
+    }
+
+    // the text ends with a line feed, so the last element is the empty line after it
+    private void trim(Document document) throws BadLocationException {
+        Element root = document.getDefaultRootElement();
+        int excess = root.getElementCount() - 1 - maxLines;
+        if (excess > 0) {
+            document.remove(0, root.getElement(excess - 1).getEndOffset());
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.hearthgames.client.stub;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hearthgames.client.compression.CompressionDictionary;
+import com.hearthgames.client.log.BinaryGameFormat;
+import com.hearthgames.client.log.GameType;
+import com.hearthgames.client.log.GameUploader.BatchRecordGameRequest;
+import com.hearthgames.client.log.GameUploader.BatchRecordGameResponse;
+import com.hearthgames.client.log.GameUploader.RecordGameRequest;
+import com.hearthgames.client.log.GameUploader.RecordGameResponse;
+import com.hearthgames.client.log.GameUploader.RecordGameResult;
+import com.hearthgames.client.live.LiveFrame;
+import com.hearthgames.client.live.LiveStreamer.LiveFrameResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A stand in for the HearthGames.com upload endpoints so the client can be tested offline.  It decompresses every game
+ * it receives to check it, with the preset dictionary the game says it was compressed with, and can be told to fail or
+ * reject a share of the uploads.
+ *
+ * It's not part of the client jar, run it with: mvn -Pstub compile exec:exec -Dstub.args="[options]"
+ * and start the client with --application.upload-url=http://localhost:8099/clientUpload --application.upload-batch-url=http://localhost:8099/clientUploadBatch
+ * (plus --application.live-enabled=true --application.live-url=http://localhost:8099/clientLive to stream games live)
+ *
+ * Options: --port=8099 --fail-rate=0.0 (share of requests answered with a 503) --reject-rate=0.0 (share of games
+ * rejected) --no-batch (answer batch uploads with a 404) --json-only (answer binary uploads with a 415)
+ * --latency-target-millis=1000 (live frame latency reported against it at the end of each live game)
+ */
+public class StubUploadServer {
+
+    private static final Logger logger = LoggerFactory.getLogger(StubUploadServer.class);
+
+    static {
+        // the JDK server sends headers and body in separate writes, without this every small response waits on a delayed ack
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Random random = new Random();
+    private final AtomicInteger games = new AtomicInteger();
+    private final double failRate;
+    private final double rejectRate;
+    private final boolean batch;
+    private final boolean binary;
+    private final Map<Long, LiveGame> liveGames = new ConcurrentHashMap<>();
+    private final HttpServer server;
+    private long latencyTargetMillis = 1000;
+
+    public StubUploadServer(int port, double failRate, double rejectRate, boolean batch, boolean binary) throws IOException {
+        this.failRate = failRate;
+        this.rejectRate = rejectRate;
+        this.batch = batch;
+        this.binary = binary;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        this.server.setExecutor(Executors.newFixedThreadPool(4));
+        this.server.createContext("/clientUpload", this::upload);
+        this.server.createContext("/clientUploadBatch", this::uploadBatch);
+        this.server.createContext("/clientLive", this::live);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 8099;
+        double failRate = 0;
+        double rejectRate = 0;
+        boolean batch = true;
+        boolean binary = true;
+        long latencyTargetMillis = 1000;
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(value(arg));
+            } else if (arg.startsWith("--fail-rate=")) {
+                failRate = Double.parseDouble(value(arg));
+            } else if (arg.startsWith("--reject-rate=")) {
+                rejectRate = Double.parseDouble(value(arg));
+            } else if (arg.equals("--no-batch")) {
+                batch = false;
+            } else if (arg.equals("--json-only")) {
+                binary = false;
+            } else if (arg.startsWith("--latency-target-millis=")) {
+                latencyTargetMillis = Long.parseLong(value(arg));
+            }
+        }
+        StubUploadServer server = new StubUploadServer(port, failRate, rejectRate, batch, binary);
+        server.setLatencyTargetMillis(latencyTargetMillis);
+        server.start();
+        logger.info("Stub upload server listening on http://localhost:" + port);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public int getGamesRecorded() {
+        return games.get();
+    }
+
+    public void setLatencyTargetMillis(long latencyTargetMillis) {
+        this.latencyTargetMillis = latencyTargetMillis;
+    }
+
+    private void upload(HttpExchange exchange) throws IOException {
+        try {
+            if (fail(exchange) || unsupported(exchange)) return;
+            RecordGameRequest request = isBinary(exchange)
+                    ? BinaryGameFormat.read(new DataInputStream(exchange.getRequestBody()))
+                    : objectMapper.readValue(exchange.getRequestBody(), RecordGameRequest.class);
+            RecordGameResult result = record(request);
+            if (!result.isRecorded()) {
+                respond(exchange, 400, result);
+                return;
+            }
+            RecordGameResponse response = new RecordGameResponse();
+            response.setUrl(result.getUrl());
+            respond(exchange, 200, response);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void uploadBatch(HttpExchange exchange) throws IOException {
+        try {
+            if (!batch) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            if (fail(exchange) || unsupported(exchange)) return;
+            BatchRecordGameResponse response = new BatchRecordGameResponse();
+            if (isBinary(exchange)) {
+                DataInputStream in = new DataInputStream(exchange.getRequestBody());
+                RecordGameRequest game;
+                while ((game = BinaryGameFormat.read(in)) != null) {
+                    response.getResults().add(record(game));
+                }
+            } else {
+                BatchRecordGameRequest request = objectMapper.readValue(exchange.getRequestBody(), BatchRecordGameRequest.class);
+                for (RecordGameRequest game : request.getGames()) {
+                    response.getResults().add(record(game));
+                }
+            }
+            respond(exchange, 200, response);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Frames are inflated in order, anything out of order is answered with the last sequence processed so the client resends
+    private void live(HttpExchange exchange) throws IOException {
+        try {
+            if (fail(exchange)) return;
+            LiveFrame frame = LiveFrame.read(new DataInputStream(exchange.getRequestBody()));
+            LiveFrameResponse response = new LiveFrameResponse();
+            LiveGame game = frame.isStart() ? liveGames.computeIfAbsent(frame.getStreamId(), id -> new LiveGame()) : liveGames.get(frame.getStreamId());
+            if (game == null) {
+                response.setReset(true);
+                respond(exchange, 200, response);
+                return;
+            }
+            synchronized (game) {
+                if (frame.getSequence() == game.expected) {
+                    game.receive(frame);
+                    if (frame.isEnd()) {
+                        liveGames.remove(frame.getStreamId());
+                        game.report(frame.getStreamId(), latencyTargetMillis);
+                    }
+                }
+                response.setAcked(game.expected - 1);
+            }
+            respond(exchange, 200, response);
+        } catch (DataFormatException e) {
+            exchange.sendResponseHeaders(400, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private boolean fail(HttpExchange exchange) throws IOException {
+        if (random.nextDouble() < failRate) {
+            logger.info("Failing upload");
+            exchange.sendResponseHeaders(503, -1);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isBinary(HttpExchange exchange) {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        return contentType != null && contentType.startsWith("application/x-hearthgames-");
+    }
+
+    private boolean unsupported(HttpExchange exchange) throws IOException {
+        if (!binary && isBinary(exchange)) {
+            exchange.sendResponseHeaders(415, -1);
+            return true;
+        }
+        return false;
+    }
+
+    private RecordGameResult record(RecordGameRequest request) throws IOException {
+        RecordGameResult result = new RecordGameResult();
+        if (random.nextDouble() < rejectRate) {
+            result.setMsg("Game rejected by the stub server");
+            logger.info("Rejected game " + request.getStartTime());
+            return result;
+        }
+        int lines;
+        try {
+            lines = countLines(request.getData(), request.getDictionaryId());
+        } catch (DataFormatException e) {
+            result.setMsg("Game data is corrupt : " + e.getMessage());
+            logger.info("Rejected corrupt game " + request.getStartTime() + " : " + e.getMessage());
+            return result;
+        }
+        int id = games.incrementAndGet();
+        result.setRecorded(true);
+        result.setUrl("http://localhost:" + getPort() + "/game/" + id);
+        logger.info("Recorded game " + id + " : " + request.getData().length + " bytes, " + lines + " lines, "
+                + GameType.fromId(request.getGameType()) + (request.getRank() > 0 ? " rank " + request.getRank() : "")
+                + (request.getDictionaryId() > 0 ? ", dictionary " + request.getDictionaryId() : ""));
+        return result;
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, json.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(json);
+        }
+    }
+
+    static int countLines(byte[] data, int dictionaryId) throws DataFormatException {
+        int lines = 0;
+        byte[] buffer = new byte[8192];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            while (!inflater.finished()) {
+                int read = inflater.inflate(buffer);
+                if (read == 0 && inflater.needsDictionary()) {
+                    CompressionDictionary dictionary = CompressionDictionary.get(dictionaryId);
+                    if (dictionary == null || dictionary.getAdler() != inflater.getAdler()) {
+                        throw new DataFormatException("compressed with an unknown dictionary, the game says " + dictionaryId);
+                    }
+                    dictionary.apply(inflater);
+                } else if (read == 0 && !inflater.finished() && inflater.needsInput()) {
+                    throw new DataFormatException("truncated");
+                }
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n') lines++;
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+        return lines;
+    }
+
+    private static class LiveGame {
+        private final Inflater inflater = new Inflater();
+        private final byte[] buffer = new byte[8192];
+        private final List<Long> latencies = new ArrayList<>();
+        private long expected;
+        private int lines;
+
+        void receive(LiveFrame frame) throws DataFormatException {
+            inflater.setInput(frame.getData());
+            int read;
+            while ((read = inflater.inflate(buffer)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n') lines++;
+                }
+            }
+            if (frame.getLineCount() > 0) {
+                latencies.add(System.currentTimeMillis() - frame.getFirstLineTime());
+            }
+            expected++;
+        }
+
+        void report(long streamId, long targetMillis) {
+            inflater.end();
+            Collections.sort(latencies);
+            long p50 = percentile(0.5);
+            long p95 = percentile(0.95);
+            long max = latencies.isEmpty() ? 0 : latencies.get(latencies.size() - 1);
+            logger.info("Live game " + Long.toHexString(streamId) + " ended : " + expected + " frames, " + lines + " lines, latency p50 "
+                    + p50 + " ms, p95 " + p95 + " ms, max " + max + " ms" + (p95 <= targetMillis ? "" : " (over the " + targetMillis + " ms target)"));
+        }
+
+        private long percentile(double percentile) {
+            if (latencies.isEmpty()) return 0;
+            return latencies.get((int) Math.ceil(percentile * latencies.size()) - 1);
+        }
+    }
+
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+}
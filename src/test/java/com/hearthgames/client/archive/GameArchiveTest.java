@@ -0,0 +1,280 @@
+package com.hearthgames.client.archive;
+
+import com.hearthgames.client.log.ContentHash;
+import com.hearthgames.client.log.GameData;
+import com.hearthgames.client.metrics.MetricsRegistry;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class GameArchiveTest {
+
+    private static final long MAX_BYTES = 256L * 1024 * 1024;
+    private static final int RECORD_HEADER_SIZE = 40;
+    // eight of these fill a segment
+    private static final int LARGE_GAME = 1000000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Random random = new Random(1);
+    private final long now = System.currentTimeMillis();
+
+    @Test
+    public void gamesAreFoundAfterReopening() throws IOException {
+        File directory = folder.newFolder("archive");
+        GameArchive archive = open(directory, MAX_BYTES, 0);
+        List<GameData> games = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            GameData game = game(1000 + i, now - 1000 + i, i % 3);
+            games.add(game);
+            assertTrue(archive.add(game));
+        }
+        assertFalse(archive.add(games.get(0)));
+        archive.close();
+
+        archive = open(directory, MAX_BYTES, 0);
+        assertEquals(hashes(games), hashes(archive.find(0, Long.MAX_VALUE, -1, Integer.MAX_VALUE)));
+        assertEquals(5, archive.find(now - 1000 + 5, now - 1000 + 10, -1, Integer.MAX_VALUE).size());
+        assertEquals(7, archive.find(0, Long.MAX_VALUE, 1, Integer.MAX_VALUE).size());
+        for (GameData game : games) {
+            assertArrayEquals(game.getData(), data(archive, game.getHash()));
+        }
+        archive.close();
+    }
+
+    @Test
+    public void tornLastRecordIsCutOff() throws IOException {
+        File directory = folder.newFolder("archive");
+        GameArchive archive = open(directory, MAX_BYTES, 0);
+        List<GameData> games = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            games.add(game(1000, now + i, 1));
+            archive.add(games.get(i));
+        }
+        archive.close();
+        File segment = segment(directory, 0);
+        long length = segment.length();
+        // the header of a record whose data was never written
+        ByteBuffer torn = ByteBuffer.allocate(RECORD_HEADER_SIZE + 10);
+        torn.putInt(0x48474131).putInt(1000);
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(length);
+            file.write(torn.array());
+        }
+
+        archive = open(directory, MAX_BYTES, 0);
+        assertEquals(length, segment.length());
+        assertEquals(3, archive.size());
+        GameData added = game(1000, now + 3, 1);
+        archive.add(added);
+        games.add(added);
+        archive.close();
+
+        archive = open(directory, MAX_BYTES, 0);
+        assertEquals(hashes(games), hashes(archive.find(0, Long.MAX_VALUE, -1, Integer.MAX_VALUE)));
+        assertArrayEquals(added.getData(), data(archive, added.getHash()));
+        archive.close();
+    }
+
+    @Test
+    public void truncatedGameIsDropped() throws IOException {
+        File directory = folder.newFolder("archive");
+        GameArchive archive = open(directory, MAX_BYTES, 0);
+        GameData kept = game(1000, now, 1);
+        GameData truncated = game(1000, now + 1, 1);
+        archive.add(kept);
+        archive.add(truncated);
+        long cut = archive.get(truncated.getHash()).getOffset() + 10;
+        archive.close();
+        try (RandomAccessFile file = new RandomAccessFile(segment(directory, 0), "rw")) {
+            file.setLength(cut);
+        }
+
+        archive = open(directory, MAX_BYTES, 0);
+        assertNull(archive.get(truncated.getHash()));
+        assertEquals(1, archive.size());
+        GameData added = game(1000, now + 2, 1);
+        archive.add(added);
+        archive.close();
+
+        archive = open(directory, MAX_BYTES, 0);
+        assertEquals(2, archive.size());
+        assertArrayEquals(added.getData(), data(archive, added.getHash()));
+        archive.close();
+    }
+
+    @Test
+    public void indexIsRebuiltFromTheSegments() throws IOException {
+        File directory = folder.newFolder("archive");
+        GameArchive archive = open(directory, MAX_BYTES, 0);
+        List<GameData> games = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            games.add(game(i < 10 ? 1000 : LARGE_GAME * 5, now + i, i % 2));
+            archive.add(games.get(i));
+        }
+        archive.close();
+        File index = new File(directory, "archive.idx");
+        Files.write(index.toPath(), new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+        archive = open(directory, MAX_BYTES, 0);
+        assertEquals(hashes(games), hashes(archive.find(0, Long.MAX_VALUE, -1, Integer.MAX_VALUE)));
+        for (GameData game : games) {
+            assertArrayEquals(game.getData(), data(archive, game.getHash()));
+        }
+        archive.close();
+
+        Files.delete(index.toPath());
+        archive = open(directory, MAX_BYTES, 0);
+        assertEquals(hashes(games), hashes(archive.find(0, Long.MAX_VALUE, -1, Integer.MAX_VALUE)));
+        archive.close();
+    }
+
+    @Test
+    public void oldestGamesAreDroppedPastTheMaxBytes() throws IOException {
+        File directory = folder.newFolder("archive");
+        long maxBytes = 5 * (RECORD_HEADER_SIZE + 1000);
+        GameArchive archive = open(directory, maxBytes, 0);
+        List<GameData> games = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            // added out of order, retention goes by start time
+            games.add(game(1000, now + (i * 7) % 10, 1));
+            archive.add(games.get(i));
+        }
+        games.sort((a, b) -> Long.compare(a.getStartTime(), b.getStartTime()));
+        List<GameData> newest = games.subList(5, 10);
+        assertEquals(hashes(newest), hashes(archive.find(0, Long.MAX_VALUE, -1, Integer.MAX_VALUE)));
+        assertEquals(maxBytes, archive.getBytes());
+        archive.close();
+
+        archive = open(directory, maxBytes, 0);
+        assertEquals(hashes(newest), hashes(archive.find(0, Long.MAX_VALUE, -1, Integer.MAX_VALUE)));
+        archive.close();
+    }
+
+    @Test
+    public void gamesAreDroppedPastTheMaxAge() throws IOException {
+        File directory = folder.newFolder("archive");
+        long maxAge = TimeUnit.DAYS.toMillis(30);
+        GameArchive archive = open(directory, MAX_BYTES, 0);
+        GameData old = game(1000, now - TimeUnit.DAYS.toMillis(40), 1);
+        GameData recent = game(1000, now - TimeUnit.DAYS.toMillis(20), 1);
+        archive.add(old);
+        archive.add(recent);
+        assertEquals(2, archive.size());
+        archive.close();
+
+        archive = open(directory, MAX_BYTES, maxAge);
+        assertNull(archive.get(old.getHash()));
+        assertNotNull(archive.get(recent.getHash()));
+        assertFalse(archive.add(game(1000, now - TimeUnit.DAYS.toMillis(31), 1)));
+        assertTrue(archive.add(game(1000, now, 1)));
+        assertEquals(2, archive.size());
+        archive.close();
+    }
+
+    @Test
+    public void compactionMovesTheLiveGames() throws IOException {
+        File directory = folder.newFolder("archive");
+        // the first segment's even games are the oldest, with the first odd one they're dropped
+        GameArchive archive = open(directory, 19L * (RECORD_HEADER_SIZE + LARGE_GAME), 0);
+        for (int i = 0; i < 24; i++) {
+            archive.add(game(LARGE_GAME, i < 8 && i % 2 == 0 ? now + i : now + 1000 + i, i % 2));
+        }
+        assertEquals(19, archive.size());
+        assertTrue(segment(directory, 0).exists());
+        List<ArchiveEntry> before = archive.find(0, Long.MAX_VALUE, -1, Integer.MAX_VALUE);
+        List<ArchiveEntry> beforeByType = archive.find(0, Long.MAX_VALUE, 1, Integer.MAX_VALUE);
+        List<byte[]> data = new ArrayList<>();
+        for (ArchiveEntry entry : before) {
+            data.add(data(archive, entry.getHash()));
+        }
+
+        assertFalse(archive.compact());
+        assertFalse(segment(directory, 0).exists());
+        assertUnchanged(archive, before, beforeByType, data);
+        for (ArchiveEntry entry : archive.find(0, Long.MAX_VALUE, -1, Integer.MAX_VALUE)) {
+            assertTrue(archive.get(entry.getHash()).getSegment() > 0);
+        }
+        archive.close();
+
+        archive = open(directory, 19L * (RECORD_HEADER_SIZE + LARGE_GAME), 0);
+        assertUnchanged(archive, before, beforeByType, data);
+        archive.close();
+    }
+
+    private void assertUnchanged(GameArchive archive, List<ArchiveEntry> before, List<ArchiveEntry> beforeByType,
+                                 List<byte[]> data) {
+        List<ArchiveEntry> after = archive.find(0, Long.MAX_VALUE, -1, Integer.MAX_VALUE);
+        assertEquals(hashes(before), hashes(after));
+        assertEquals(hashes(beforeByType), hashes(archive.find(0, Long.MAX_VALUE, 1, Integer.MAX_VALUE)));
+        for (int i = 0; i < before.size(); i++) {
+            ArchiveEntry entry = archive.get(before.get(i).getHash());
+            assertEquals(before.get(i).getStartTime(), entry.getStartTime());
+            assertEquals(before.get(i).getGameType(), entry.getGameType());
+            assertArrayEquals(data.get(i), data(archive, entry.getHash()));
+        }
+    }
+
+    private GameArchive open(File directory, long maxBytes, long maxAgeMillis) throws IOException {
+        return new GameArchive(directory, maxBytes, maxAgeMillis, new MetricsRegistry());
+    }
+
+    private static File segment(File directory, int id) {
+        return new File(directory, String.format("%08d.seg", id));
+    }
+
+    private GameData game(int length, long startTime, int gameType) {
+        byte[] data = new byte[length];
+        random.nextBytes(data);
+        GameData gameData = new GameData();
+        gameData.setData(data);
+        gameData.setHash(ContentHash.of(data));
+        gameData.setStartTime(startTime);
+        gameData.setEndTime(startTime + 1);
+        gameData.setGameType(gameType);
+        return gameData;
+    }
+
+    private static byte[] data(GameArchive archive, long hash) {
+        try {
+            return archive.withGame(hash, game -> {
+                try (InputStream in = game.openStream()) {
+                    return IOUtils.toByteArray(in);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<Long> hashes(List<?> games) {
+        List<Long> hashes = new ArrayList<>();
+        for (Object game : games) {
+            hashes.add(game instanceof GameData ? ((GameData) game).getHash() : ((ArchiveEntry) game).getHash());
+        }
+        return hashes;
+    }
+}
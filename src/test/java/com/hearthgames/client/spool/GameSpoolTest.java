@@ -0,0 +1,114 @@
+package com.hearthgames.client.spool;
+
+import com.hearthgames.client.log.ContentHash;
+import com.hearthgames.client.log.GameData;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GameSpoolTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Random random = new Random(1);
+
+    @Test
+    public void acknowledgedGamesStayAcknowledgedAfterCompaction() throws IOException {
+        File directory = folder.newFolder("spool");
+        GameSpool spool = new GameSpool(directory);
+        for (int i = 0; i < 70; i++) {
+            spool.append(game(1000));
+        }
+        List<SpoolEntry> pending = spool.pending();
+        for (int i = 69; i >= 34; i--) {
+            spool.acknowledge(pending.get(i));
+        }
+        assertEquals(34, spool.size());
+        spool.close();
+
+        spool = new GameSpool(directory);
+        assertEquals(hashes(pending.subList(0, 34)), hashes(spool.pending()));
+        spool.close();
+    }
+
+    @Test
+    public void acknowledgedActiveSegmentIsNotRecoveredAfterCompaction() throws IOException {
+        File directory = folder.newFolder("spool");
+        GameSpool spool = new GameSpool(directory);
+        for (int i = 0; i < 10; i++) {
+            spool.append(game(1000));
+        }
+        // fills the first segment and starts a second one
+        for (int i = 0; i < 100; i++) {
+            spool.append(game(200000));
+        }
+        List<SpoolEntry> pending = spool.pending();
+        for (int i = pending.size() - 1; i >= 10; i--) {
+            spool.acknowledge(pending.get(i));
+        }
+        spool.close();
+
+        spool = new GameSpool(directory);
+        assertEquals(10, spool.size());
+        spool.append(game(1000));
+        spool.close();
+
+        spool = new GameSpool(directory);
+        assertEquals(11, spool.size());
+        spool.close();
+    }
+
+    @Test
+    public void corruptGameIsDroppedInsteadOfHandedOut() throws IOException {
+        File directory = folder.newFolder("spool");
+        GameSpool spool = new GameSpool(directory);
+        SpoolEntry first = spool.append(game(1000));
+        SpoolEntry corrupt = spool.append(game(200000));
+        SpoolEntry truncated = spool.append(game(1000));
+        File segment = directory.listFiles((dir, name) -> name.endsWith(".seg"))[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(corrupt.getOffset() + 100000);
+            int value = file.read();
+            file.seek(corrupt.getOffset() + 100000);
+            file.write(value ^ 1);
+            file.setLength(truncated.getOffset() + 10);
+        }
+
+        assertTrue(spool.verify(first));
+        assertFalse(spool.verify(corrupt));
+        assertFalse(spool.verify(truncated));
+        assertEquals(Collections.singletonList(first.getHash()), hashes(spool.pending()));
+        spool.close();
+    }
+
+    private GameData game(int length) {
+        byte[] data = new byte[length];
+        random.nextBytes(data);
+        GameData gameData = new GameData();
+        gameData.setData(data);
+        gameData.setHash(ContentHash.of(data));
+        gameData.setStartTime(System.currentTimeMillis());
+        return gameData;
+    }
+
+    private static List<Long> hashes(List<SpoolEntry> entries) {
+        List<Long> hashes = new ArrayList<>();
+        for (SpoolEntry entry : entries) {
+            hashes.add(entry.getHash());
+        }
+        return hashes;
+    }
+}